@@ -39,12 +39,23 @@ if [ $? -eq 0 ]; then
     echo "🌐 Backend disponibile su: http://192.168.1.100:3000"
     echo "🔗 API LED: http://192.168.1.100:3000/api/led/toggle"
     
-    # Attendi qualche secondo per l'avvio
-    sleep 5
-    
-    # Testa il servizio
-    echo "🧪 Test del servizio..."
-    curl -s http://localhost:3000/ | grep -q "Server LED Strip" && echo "✅ Servizio risponde correttamente" || echo "❌ Servizio non risponde"
+    # Attendi la readiness (porta aperta e linee GPIO reclamate) invece di uno sleep fisso
+    echo "🧪 Attesa readiness del servizio..."
+    START=$(date +%s%N)
+    READY=0
+    for i in $(seq 1 120); do
+        if curl -sf http://localhost:3000/actuator/health/readiness > /dev/null; then
+            READY=1
+            break
+        fi
+        sleep 0.5
+    done
+    ELAPSED=$(( ($(date +%s%N) - START) / 1000000 ))
+    if [ $READY -eq 1 ]; then
+        echo "✅ Servizio pronto in ${ELAPSED}ms"
+    else
+        echo "❌ Servizio non pronto dopo ${ELAPSED}ms"
+    fi
     
     # Mostra i log
     echo "📋 Log container:"
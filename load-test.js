@@ -0,0 +1,71 @@
+// Load test delle API REST: richieste concorrenti e latenza (solo moduli Node built-in)
+//
+// Uso: node load-test.js [BASE_URL] [RICHIESTE] [CONCORRENZA]
+//   BASE_URL     default http://localhost:3000
+//   RICHIESTE    numero totale di richieste (default 2000)
+//   CONCORRENZA  richieste in volo contemporaneamente (default 100)
+//
+// Alterna set-state sui pin di output (scrittura GPIO bloccante sul driver)
+// e letture di stato. Confrontare prima/dopo con lo stesso profilo hardware:
+//   java -jar app.jar --spring.threads.virtual.enabled=false --server.tomcat.threads.max=20
+//   java -Djdk.tracePinnedThreads=short -jar app.jar --spring.threads.virtual.enabled=true --server.tomcat.threads.max=20
+const http = require('http');
+
+const BASE_URL = process.argv[2] || 'http://localhost:3000';
+const REQUESTS = parseInt(process.argv[3] || '2000', 10);
+const CONCURRENCY = parseInt(process.argv[4] || '100', 10);
+const PINS = [5, 6, 16, 17, 20, 22, 23, 24, 25, 26, 27];
+
+const agent = new http.Agent({ keepAlive: true, maxSockets: CONCURRENCY });
+const latencies = [];
+let sent = 0;
+let errors = 0;
+
+function request(i) {
+    const pin = PINS[i % PINS.length];
+    const write = i % 2 === 0;
+    const path = write
+        ? `/api/gpio/pin/${pin}/state?value=${Math.floor(i / 2) % 2 === 0}`
+        : `/api/gpio/pin/${pin}`;
+    return new Promise((resolve) => {
+        const start = process.hrtime.bigint();
+        const req = http.request(BASE_URL + path, { method: write ? 'PUT' : 'GET', agent }, (res) => {
+            res.resume();
+            res.on('end', () => {
+                latencies.push(Number(process.hrtime.bigint() - start) / 1e6);
+                if (res.statusCode !== 200) errors++;
+                resolve();
+            });
+        });
+        req.on('error', () => {
+            errors++;
+            resolve();
+        });
+        req.end();
+    });
+}
+
+async function worker() {
+    while (sent < REQUESTS) {
+        await request(sent++);
+    }
+}
+
+function percentile(sorted, p) {
+    return sorted[Math.min(sorted.length - 1, Math.ceil(sorted.length * p / 100) - 1)].toFixed(1);
+}
+
+(async () => {
+    console.log(`🔥 Load test su ${BASE_URL}: ${REQUESTS} richieste, concorrenza ${CONCURRENCY}`);
+    const start = Date.now();
+    await Promise.all(Array.from({ length: CONCURRENCY }, worker));
+    const elapsed = (Date.now() - start) / 1000;
+    const sorted = latencies.sort((a, b) => a - b);
+    console.log(`Richieste:   ${REQUESTS} (errori ${errors})`);
+    console.log(`Durata:      ${elapsed.toFixed(2)} s`);
+    console.log(`Throughput:  ${(REQUESTS / elapsed).toFixed(1)} req/s`);
+    console.log(`Latenza p50: ${percentile(sorted, 50)} ms`);
+    console.log(`Latenza p95: ${percentile(sorted, 95)} ms`);
+    console.log(`Latenza p99: ${percentile(sorted, 99)} ms`);
+    agent.destroy();
+})();
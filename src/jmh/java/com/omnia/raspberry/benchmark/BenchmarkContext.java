@@ -0,0 +1,58 @@
+package com.omnia.raspberry.benchmark;
+
+import com.omnia.raspberry.config.HardwareConfig;
+import com.omnia.raspberry.service.DeviceEventBus;
+import com.omnia.raspberry.service.ESP01Service;
+import com.omnia.raspberry.service.GpioService;
+import com.omnia.raspberry.service.MetricsHistoryService;
+import com.omnia.raspberry.service.SystemMonitorService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Contesto Spring ridotto per i benchmark
+ *
+ * Solo i bean dei path misurati, con GPIO, PWM e LED Strip simulati:
+ * niente web server né job @Scheduled, i benchmark chiamano i metodi
+ * dei servizi direttamente. L'ESP-01S punta a una porta chiusa, quindi
+ * il prober fallisce subito e resta in backoff.
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    static AnnotationConfigApplicationContext start(Map<String, Object> overrides) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("gpio.simulation.mode", "true");
+        properties.put("esp01.base-url", "http://127.0.0.1:9");
+        // ESP irraggiungibile: il breaker resta aperto e i frame vanno in fallback
+        properties.put("simulation.esp01.enabled", "false");
+        properties.put("system.monitor.proc-root", fixture("proc").toString());
+        properties.put("system.monitor.sys-root", fixture("sys").toString());
+        properties.putAll(overrides);
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.register(HardwareConfig.class, ESP01Service.class, DeviceEventBus.class, GpioService.class,
+                MetricsHistoryService.class, SystemMonitorService.class);
+        context.refresh();
+        return context;
+    }
+
+    // File di fixture in src/jmh/resources/fixtures (copiati in target/test-classes)
+    static Path fixture(String name) {
+        try {
+            return Path.of(BenchmarkContext.class.getResource("/fixtures/" + name).toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Fixture non trovata: " + name, e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.omnia.raspberry.benchmark;
+
+import com.omnia.raspberry.model.GpioBatchResult;
+import com.omnia.raspberry.service.GpioService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scritture GPIO da GpioService sul driver simulato
+ *
+ * Misura il costo software di una scrittura (lock per pin, tabella pin,
+ * timer Micrometer, evento sul bus), senza la latenza dell'hardware.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GpioServiceBenchmark {
+
+    private static final int RELAY_PIN = 16;
+    private static final int STATUS_LED_PIN = 13;
+
+    private AnnotationConfigApplicationContext context;
+    private GpioService gpioService;
+    private Map<Integer, Boolean> batchOn;
+    private Map<Integer, Boolean> batchOff;
+    private boolean level;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkContext.start(Map.of());
+        gpioService = context.getBean(GpioService.class);
+        gpioService.setDigitalPin(STATUS_LED_PIN, true);
+        batchOn = new LinkedHashMap<>();
+        batchOff = new LinkedHashMap<>();
+        for (int pin : new int[] {16, 20, 22, 23, 24, 25}) {
+            batchOn.put(pin, true);
+            batchOff.put(pin, false);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean toggle() {
+        return gpioService.toggleDigitalPin(RELAY_PIN);
+    }
+
+    @Benchmark
+    public boolean setState() {
+        level = !level;
+        return gpioService.setDigitalPin(RELAY_PIN, level);
+    }
+
+    // Stato già impostato: nessuna scrittura hardware
+    @Benchmark
+    public boolean setStateUnchanged() {
+        return gpioService.setDigitalPin(STATUS_LED_PIN, true);
+    }
+
+    @Benchmark
+    public GpioBatchResult batch() {
+        level = !level;
+        return gpioService.applyBatch(level ? batchOn : batchOff);
+    }
+}
@@ -0,0 +1,108 @@
+package com.omnia.raspberry.benchmark;
+
+import com.omnia.raspberry.hardware.FaultInjector;
+import com.omnia.raspberry.hardware.LedFrameSink;
+import com.omnia.raspberry.hardware.SimulatedEsp01Server;
+import com.omnia.raspberry.service.ESP01Service;
+import com.omnia.raspberry.service.LedColorPipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame LED Strip: stadio colore e invio all'ESP-01S
+ *
+ * encode misura LedColorPipeline (LUT luminosità/gamma, dithering) su un
+ * sink che consuma il buffer. Gli altri benchmark passano da ESP01Service
+ * verso l'ESP-01S simulato senza latenza né guasti: serializzazione,
+ * client keep-alive e round trip loopback, senza la rete Wi-Fi dell'ESP.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// TCP_NODELAY sul server simulato: senza, il delayed ACK domina il round trip
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class LedFrameBenchmark {
+
+    @Param({"10", "60", "300"})
+    private int ledCount;
+
+    @Param({"false", "true"})
+    private boolean dithering;
+
+    private byte[] frame;
+    private LedColorPipeline pipeline;
+    private SimulatedEsp01Server server;
+    private ESP01Service esp01Service;
+    private int led;
+
+    @Setup(Level.Trial)
+    public void setup(Blackhole blackhole) throws IOException {
+        frame = new byte[ledCount * 3];
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = (byte) (i * 37);
+        }
+        pipeline = new LedColorPipeline(new LedFrameSink() {
+            @Override
+            public String getName() {
+                return "blackhole";
+            }
+
+            @Override
+            public boolean pushFrame(byte[] output) {
+                blackhole.consume(output);
+                return true;
+            }
+
+            @Override
+            public boolean setPower(boolean isOn) {
+                return true;
+            }
+        }, ledCount, 2.2, 2.2, 2.2, dithering);
+        pipeline.setBrightness(180);
+
+        // Concorrenza 1 come il firmware: i benchmark sono a thread singolo
+        server = new SimulatedEsp01Server(0, 1, FaultInjector.NONE);
+        esp01Service = new ESP01Service(server.getBaseUrl(),
+                2000, 2000, 3, 1000, 60000, new SimpleMeterRegistry());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        esp01Service.stopProber();
+        server.close();
+    }
+
+    @Benchmark
+    public boolean encode() {
+        return pipeline.pushFrame(frame);
+    }
+
+    @Benchmark
+    public boolean esp01SetFrame() {
+        return esp01Service.setFrame(frame);
+    }
+
+    // Comando JSON per singolo LED (path precedente al frame binario)
+    @Benchmark
+    public boolean esp01SetLedColor() {
+        led = (led + 1) % ledCount;
+        return esp01Service.setLedColor(led, 255, 64, 0);
+    }
+}
@@ -0,0 +1,65 @@
+package com.omnia.raspberry.benchmark;
+
+import com.omnia.raspberry.model.SystemInfo;
+import com.omnia.raspberry.service.CpuUsageCalculator;
+import com.omnia.raspberry.service.SystemMonitorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Campionamento di sistema su fixture /proc e /sys di un Raspberry Pi 4
+ *
+ * I file di fixture non cambiano tra un campione e l'altro: si misura il
+ * costo di lettura e parsing, non i valori.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SystemMonitorBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+    private SystemMonitorService systemMonitorService;
+    private CpuUsageCalculator cpuUsageCalculator;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkContext.start(Map.of());
+        systemMonitorService = context.getBean(SystemMonitorService.class);
+        cpuUsageCalculator = new CpuUsageCalculator(BenchmarkContext.fixture("proc").resolve("stat"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cpuUsageCalculator.close();
+        context.close();
+    }
+
+    // Campione completo: sonde, snapshot, storico metriche ed eventi sul bus
+    @Benchmark
+    public SystemInfo sample() {
+        systemMonitorService.sample();
+        return systemMonitorService.getSystemInfo();
+    }
+
+    @Benchmark
+    public boolean cpuUsage() throws IOException {
+        return cpuUsageCalculator.sample();
+    }
+}
@@ -0,0 +1,132 @@
+package com.omnia.raspberry.config;
+
+import com.omnia.raspberry.hardware.FaultInjector;
+import com.omnia.raspberry.hardware.GpioLineDriver;
+import com.omnia.raspberry.hardware.GpiosetLineDriver;
+import com.omnia.raspberry.hardware.LedFrameSink;
+import com.omnia.raspberry.hardware.OnOffPwmDriver;
+import com.omnia.raspberry.hardware.PigpioLineDriver;
+import com.omnia.raspberry.hardware.PwmDriver;
+import com.omnia.raspberry.hardware.SimulatedPwmDriver;
+import com.omnia.raspberry.hardware.SoftwarePwmDriver;
+import com.omnia.raspberry.hardware.SysfsPwmDriver;
+import com.omnia.raspberry.hardware.SimulatedEsp01Server;
+import com.omnia.raspberry.hardware.SimulatedGpioLineDriver;
+import com.omnia.raspberry.hardware.SimulatedLedFrameSink;
+import com.omnia.raspberry.service.ESP01Service;
+import com.omnia.raspberry.service.Esp01FrameSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Selezione dei backend hardware
+ *
+ * - gpio.simulation.mode=true → driver simulato in memoria
+ * - altrimenti pigpio (linee aperte per tutta la vita dell'app)
+ * - se pigpio non è disponibile → fallback gpioset (fork per chiamata)
+ * - PWM ventola: sysfs /sys/class/pwm se esportabile, altrimenti PWM software
+ *   (solo su pigpio; con gpioset la ventola è acceso/spento)
+ * - frame LED Strip verso ESP-01S, o sink simulato in modalità simulazione
+ * - in simulazione: latenza/guasti configurabili (simulation.*) e un server
+ *   ESP-01S simulato locale, per i test di carico senza hardware
+ */
+@Configuration
+public class HardwareConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(HardwareConfig.class);
+
+    @Bean(destroyMethod = "close")
+    public GpioLineDriver gpioLineDriver(@Value("${gpio.simulation.mode:false}") boolean simulationMode,
+                                         @Value("${simulation.gpio.latency-us:0}") long latencyMicros,
+                                         @Value("${simulation.gpio.jitter-us:0}") long jitterMicros,
+                                         @Value("${simulation.gpio.failure-rate:0.0}") double failureRate) {
+        if (simulationMode) {
+            log.info("🧪 GPIO in modalità simulazione (latenza {}µs ±{}µs, guasti {})",
+                    latencyMicros, jitterMicros, failureRate);
+            return new SimulatedGpioLineDriver(new FaultInjector("gpio", latencyMicros, jitterMicros, failureRate));
+        }
+        try {
+            GpioLineDriver driver = new PigpioLineDriver();
+            log.info("⚡ GPIO driver pigpio inizializzato");
+            return driver;
+        } catch (Exception e) {
+            log.warn("⚠️ pigpio non disponibile ({}), uso gpioset", e.getMessage());
+            return new GpiosetLineDriver();
+        }
+    }
+
+    /**
+     * ESP-01S simulato: stesse API HTTP del firmware su 127.0.0.1
+     * (porta 0 = effimera). ESP01Service lo usa al posto di esp01.base-url.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = {"gpio.simulation.mode", "simulation.esp01.enabled"}, havingValue = "true")
+    public SimulatedEsp01Server esp01Simulator(@Value("${simulation.esp01.port:0}") int port,
+                                               @Value("${simulation.esp01.concurrency:1}") int concurrency,
+                                               @Value("${simulation.esp01.latency-ms:0}") long latencyMillis,
+                                               @Value("${simulation.esp01.jitter-ms:0}") long jitterMillis,
+                                               @Value("${simulation.esp01.failure-rate:0.0}") double failureRate) throws IOException {
+        // TCP_NODELAY sul server simulato: va impostato prima del primo HttpServer, se non passato da riga di comando
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        FaultInjector faults = new FaultInjector("esp01", latencyMillis * 1000L, jitterMillis * 1000L, failureRate);
+        SimulatedEsp01Server server = new SimulatedEsp01Server(port, concurrency, faults);
+        log.info("🧪 ESP-01S simulato su {} (latenza {}ms ±{}ms, guasti {})",
+                server.getBaseUrl(), latencyMillis, jitterMillis, failureRate);
+        return server;
+    }
+
+    @Bean
+    public LedFrameSink ledFrameSink(@Value("${gpio.simulation.mode:false}") boolean simulationMode,
+                                     ObjectProvider<SimulatedEsp01Server> esp01Simulator,
+                                     ESP01Service esp01Service) {
+        // Con l'ESP-01S simulato i frame percorrono il vero client HTTP
+        if (simulationMode && esp01Simulator.getIfAvailable() == null) {
+            return new SimulatedLedFrameSink();
+        }
+        return new Esp01FrameSink(esp01Service);
+    }
+
+    @Bean(destroyMethod = "close")
+    public PwmDriver fanPwmDriver(@Value("${gpio.simulation.mode:false}") boolean simulationMode,
+                                  @Value("${fan.pwm.chip:/sys/class/pwm/pwmchip0}") String chip,
+                                  @Value("${fan.pwm.channel:0}") int channel,
+                                  @Value("${fan.pwm.frequency-hz:25000}") int frequencyHz,
+                                  @Value("${fan.pwm.software-frequency-hz:100}") int softwareFrequencyHz,
+                                  @Value("${fan.pwm.pin:12}") int pin,
+                                  @Value("${simulation.pwm.latency-us:0}") long latencyMicros,
+                                  @Value("${simulation.pwm.jitter-us:0}") long jitterMicros,
+                                  @Value("${simulation.pwm.failure-rate:0.0}") double failureRate,
+                                  GpioLineDriver gpioLineDriver) {
+        if (simulationMode) {
+            return new SimulatedPwmDriver(frequencyHz, new FaultInjector("pwm", latencyMicros, jitterMicros, failureRate));
+        }
+        Path chipPath = Path.of(chip);
+        if (SysfsPwmDriver.isAvailable(chipPath)) {
+            try {
+                PwmDriver driver = new SysfsPwmDriver(chipPath, channel, frequencyHz);
+                log.info("🌪️ PWM hardware sysfs su {}/pwm{} a {}Hz", chipPath, channel, frequencyHz);
+                return driver;
+            } catch (Exception e) {
+                log.warn("⚠️ PWM sysfs non utilizzabile ({}), uso PWM software", e.getMessage());
+            }
+        }
+        if (!SoftwarePwmDriver.supports(gpioLineDriver)) {
+            // Un fork gpioset per fronte non sta nel periodo: solo acceso/spento
+            log.warn("⚠️ PWM software non disponibile con il driver {}: ventola acceso/spento (soglia {}%)",
+                    gpioLineDriver.getName(), OnOffPwmDriver.THRESHOLD_PERCENT);
+            return new OnOffPwmDriver(gpioLineDriver, pin);
+        }
+        log.info("🌪️ PWM software su GPIO {} a {}Hz", pin, softwareFrequencyHz);
+        return new SoftwarePwmDriver(gpioLineDriver, pin, softwareFrequencyHz);
+    }
+}
@@ -0,0 +1,571 @@
+package com.omnia.raspberry.controller;
+
+import com.omnia.raspberry.service.DeviceEventBus;
+import com.omnia.raspberry.service.ESP01Service;
+import com.omnia.raspberry.service.FanControllerService;
+import com.omnia.raspberry.service.GpioService;
+import com.omnia.raspberry.service.InputEventService;
+import com.omnia.raspberry.service.MetricsHistoryService;
+import com.omnia.raspberry.service.PinSequencerService;
+import com.omnia.raspberry.service.RuleEngineService;
+import com.omnia.raspberry.service.SimulationService;
+import com.omnia.raspberry.service.SystemMonitorService;
+import com.omnia.raspberry.model.AutomationRule;
+import com.omnia.raspberry.model.DeviceEvent;
+import com.omnia.raspberry.model.GpioBatchResult;
+import com.omnia.raspberry.model.GpioPin;
+import com.omnia.raspberry.model.HistoryPoint;
+import com.omnia.raspberry.model.PinPattern;
+import com.omnia.raspberry.model.SystemInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@CrossOrigin(origins = "*")
+public class RaspberryPiController {
+
+    @Autowired
+    private GpioService gpioService;
+
+    @Autowired
+    private SystemMonitorService systemMonitorService;
+
+    @Autowired
+    private MetricsHistoryService metricsHistoryService;
+
+    @Autowired
+    private DeviceEventBus eventBus;
+
+    @Autowired
+    private ESP01Service esp01Service;
+
+    @Autowired
+    private FanControllerService fanControllerService;
+
+    @Autowired
+    private InputEventService inputEventService;
+
+    @Autowired
+    private RuleEngineService ruleEngineService;
+
+    @Autowired
+    private PinSequencerService pinSequencerService;
+
+    @Autowired
+    private SimulationService simulationService;
+
+    @GetMapping("/")
+    public ResponseEntity<Map<String, Object>> getServerStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "🚀 OMNIA PROJECT - Sistema GPIO Professionale");
+        response.put("version", "2.0.0");
+        response.put("service", "Spring Boot + GPIO Professional");
+        response.put("totalPins", gpioService.getAllGpioPins().size());
+        response.put("ledState", gpioService.isLedOn()); // Compatibilità
+        return ResponseEntity.ok(response);
+    }
+
+    // =================== NUOVE API GPIO ===================
+
+    @GetMapping("/api/gpio/pins")
+    public ResponseEntity<List<GpioPin>> getAllGpioPins() {
+        try {
+            List<GpioPin> pins = gpioService.getAllGpioPins();
+            return ResponseEntity.ok(pins);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping("/api/gpio/pin/{pinNumber}")
+    public ResponseEntity<GpioPin> getGpioPin(@PathVariable int pinNumber) {
+        try {
+            GpioPin pin = gpioService.getGpioPin(pinNumber);
+            if (pin != null) {
+                return ResponseEntity.ok(pin);
+            } else {
+                return ResponseEntity.notFound().build();
+            }
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @PostMapping("/api/gpio/pin/{pinNumber}/toggle")
+    public ResponseEntity<Map<String, Object>> toggleGpioPin(@PathVariable int pinNumber) {
+        try {
+            boolean newState = gpioService.toggleDigitalPin(pinNumber);
+            GpioPin pin = gpioService.getGpioPin(pinNumber);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("pinNumber", pinNumber);
+            response.put("name", pin != null ? pin.getName() : "Pin " + pinNumber);
+            response.put("isOn", newState);
+            response.put("message", "Pin " + pinNumber + " " + (newState ? "attivato" : "disattivato"));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Errore controllo pin " + pinNumber + ": " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    @PutMapping("/api/gpio/pin/{pinNumber}/state")
+    public ResponseEntity<Map<String, Object>> setGpioPinState(@PathVariable int pinNumber, @RequestParam boolean value) {
+        try {
+            boolean changed = gpioService.setDigitalPin(pinNumber, value);
+            GpioPin pin = gpioService.getGpioPin(pinNumber);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("pinNumber", pinNumber);
+            response.put("name", pin != null ? pin.getName() : "Pin " + pinNumber);
+            response.put("isOn", value);
+            response.put("changed", changed);
+            response.put("message", "Pin " + pinNumber + " " + (value ? "attivato" : "disattivato"));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Errore controllo pin " + pinNumber + ": " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    @PostMapping("/api/gpio/pin/{pinNumber}/pattern")
+    public ResponseEntity<Map<String, Object>> startPinPattern(@PathVariable int pinNumber, @RequestBody PinPattern pattern) {
+        try {
+            return ResponseEntity.ok(pinSequencerService.start(pinNumber, pattern));
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @PostMapping("/api/gpio/pin/{pinNumber}/pulse")
+    public ResponseEntity<Map<String, Object>> pulsePin(@PathVariable int pinNumber, @RequestParam long ms) {
+        PinPattern pattern = new PinPattern();
+        pattern.setDurationsMs(List.of(ms));
+        return startPinPattern(pinNumber, pattern);
+    }
+
+    @DeleteMapping("/api/gpio/pin/{pinNumber}/pattern")
+    public ResponseEntity<Map<String, Object>> stopPinPattern(@PathVariable int pinNumber) {
+        if (!pinSequencerService.stop(pinNumber)) {
+            return ResponseEntity.notFound().build();
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("pinNumber", pinNumber);
+        response.put("message", "Pattern fermato, pin " + pinNumber + " spento");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/api/gpio/patterns")
+    public ResponseEntity<List<Map<String, Object>>> getPinPatterns() {
+        return ResponseEntity.ok(pinSequencerService.getStatus());
+    }
+
+    @PostMapping("/api/gpio/batch")
+    public ResponseEntity<Map<String, Object>> applyGpioBatch(@RequestBody Map<Integer, Boolean> pins) {
+        try {
+            GpioBatchResult result = gpioService.applyBatch(pins);
+            Map<String, Object> response = new HashMap<>();
+            response.put("applied", result.getApplied());
+            response.put("errors", result.getErrors());
+            response.put("hardwareWrites", result.getHardwareWrites());
+            response.put("latencyMicros", result.getLatencyMicros());
+            response.put("message", "Batch applicato su " + result.getApplied().size() + " pin");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Errore batch GPIO: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    @GetMapping("/api/gpio/events")
+    public ResponseEntity<Map<String, Object>> getInputEvents(@RequestParam(defaultValue = "50") int limit) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("events", inputEventService.getRecentEvents(limit));
+        response.put("stats", inputEventService.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    // =================== AUTOMAZIONE ===================
+
+    @GetMapping("/api/rules")
+    public ResponseEntity<Map<String, Object>> getRules() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("rules", ruleEngineService.getRules());
+        response.put("stats", ruleEngineService.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/api/rules")
+    public ResponseEntity<Object> addRule(@RequestBody AutomationRule rule) {
+        try {
+            return ResponseEntity.ok(ruleEngineService.addRule(rule));
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @DeleteMapping("/api/rules/{id}")
+    public ResponseEntity<Map<String, Object>> removeRule(@PathVariable String id) {
+        if (!ruleEngineService.removeRule(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("removed", id);
+        return ResponseEntity.ok(response);
+    }
+
+    // =================== SIMULAZIONE ===================
+
+    @GetMapping("/api/simulation")
+    public ResponseEntity<Map<String, Object>> getSimulationStatus() {
+        return ResponseEntity.ok(simulationService.getStatus());
+    }
+
+    @PostMapping("/api/simulation/input/{pinNumber}")
+    public ResponseEntity<Map<String, Object>> simulateInput(@PathVariable int pinNumber, @RequestParam boolean value) {
+        try {
+            simulationService.simulateInput(pinNumber, value);
+            Map<String, Object> response = new HashMap<>();
+            response.put("pinNumber", pinNumber);
+            response.put("value", value);
+            response.put("message", "Input simulato su pin " + pinNumber + ": " + (value ? "HIGH" : "LOW"));
+            return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(409).body(error);
+        } catch (IOException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    // =================== SENSORI ===================
+
+    @GetMapping("/api/sensor/pir")
+    public ResponseEntity<Map<String, Object>> getPirSensor() {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("motion", gpioService.readPirSensor());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Errore lettura sensore PIR: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    // =================== CONTROLLO VENTOLA ===================
+
+    @PostMapping("/api/fan/speed")
+    public ResponseEntity<Map<String, Object>> setFanSpeed(@RequestParam int percentage) {
+        try {
+            fanControllerService.setManualSpeed(percentage);
+            Map<String, Object> response = new HashMap<>();
+            response.put("fanSpeed", percentage);
+            response.put("mode", fanControllerService.getMode());
+            response.put("message", "Ventola impostata al " + percentage + "%");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Errore controllo ventola: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    @GetMapping("/api/fan/status")
+    public ResponseEntity<Map<String, Object>> getFanStatus() {
+        try {
+            Map<String, Object> status = gpioService.getFanStatus();
+            status.put("control", fanControllerService.getStatus());
+            return ResponseEntity.ok(status);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Errore lettura stato ventola: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    @PostMapping("/api/fan/mode")
+    public ResponseEntity<Map<String, Object>> setFanMode(@RequestParam String mode) {
+        try {
+            fanControllerService.setMode(mode);
+            return ResponseEntity.ok(fanControllerService.getStatus());
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Errore modalità ventola: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    // =================== LED STRIP WS2812B ===================
+
+    @PostMapping("/api/ledstrip/color")
+    public ResponseEntity<Map<String, Object>> setLedStripColor(
+            @RequestParam int ledIndex,
+            @RequestParam int red,
+            @RequestParam int green,
+            @RequestParam int blue) {
+        try {
+            gpioService.setLedStripColor(ledIndex, red, green, blue);
+            Map<String, Object> response = new HashMap<>();
+            response.put("ledIndex", ledIndex);
+            response.put("color", Map.of("red", red, "green", green, "blue", blue));
+            response.put("message", "LED " + ledIndex + " impostato a RGB(" + red + "," + green + "," + blue + ")");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Errore controllo LED strip: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    @PostMapping(value = "/api/ledstrip/frame", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Map<String, Object>> setLedStripFrame(@RequestBody byte[] frame) {
+        try {
+            gpioService.setLedStripFrame(frame);
+            Map<String, Object> response = new HashMap<>();
+            response.put("leds", frame.length / 3);
+            response.put("bytes", frame.length);
+            response.put("message", "Frame applicato su " + (frame.length / 3) + " LED");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Errore frame LED strip: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    @PostMapping("/api/ledstrip/power")
+    public ResponseEntity<Map<String, Object>> setLedStripPower(@RequestParam boolean isOn) {
+        try {
+            gpioService.setLedStripPower(isOn);
+            Map<String, Object> response = new HashMap<>();
+            response.put("isOn", isOn);
+            response.put("message", "LED Strip " + (isOn ? "accesa" : "spenta"));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Errore controllo alimentazione LED strip: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    @PostMapping("/api/ledstrip/brightness")
+    public ResponseEntity<Map<String, Object>> setLedStripBrightness(@RequestParam int brightness) {
+        try {
+            gpioService.setLedStripBrightness(brightness);
+            Map<String, Object> response = new HashMap<>();
+            response.put("brightness", brightness);
+            response.put("message", "Luminosità LED Strip impostata a " + brightness);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Errore controllo luminosità LED strip: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    @PostMapping("/api/ledstrip/effect")
+    public ResponseEntity<Map<String, Object>> setLedStripEffect(
+            @RequestParam String effect,
+            @RequestParam(defaultValue = "50") int speed,
+            @RequestParam(defaultValue = "255") int red,
+            @RequestParam(defaultValue = "255") int green,
+            @RequestParam(defaultValue = "255") int blue) {
+        try {
+            gpioService.setLedStripEffect(effect, speed, red, green, blue);
+            Map<String, Object> response = new HashMap<>();
+            response.put("effect", effect);
+            response.put("speed", speed);
+            response.put("color", Map.of("red", red, "green", green, "blue", blue));
+            response.put("message", "Effetto LED Strip '" + effect + "' attivato");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Errore effetto LED strip: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    @GetMapping("/api/esp01/status")
+    public ResponseEntity<Map<String, Object>> getEsp01Status() {
+        try {
+            return ResponseEntity.ok(esp01Service.getStatus());
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Errore lettura stato ESP-01S: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    @GetMapping("/api/ledstrip/effect/stats")
+    public ResponseEntity<Map<String, Object>> getLedStripEffectStats() {
+        try {
+            return ResponseEntity.ok(gpioService.getLedEffectStats());
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Errore lettura statistiche effetti: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    // =================== MONITORAGGIO SISTEMA ===================
+
+    @GetMapping("/api/system/info")
+    public ResponseEntity<SystemInfo> getSystemInfo() {
+        try {
+            SystemInfo systemInfo = systemMonitorService.getSystemInfo();
+            return ResponseEntity.ok(systemInfo);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping("/api/system/temperature")
+    public ResponseEntity<Map<String, Object>> getSystemTemperature() {
+        try {
+            SystemInfo systemInfo = systemMonitorService.getSystemInfo();
+            Map<String, Object> response = new HashMap<>();
+            response.put("temperature", systemInfo.getCpuTemperature());
+            response.put("unit", "°C");
+            response.put("status", systemInfo.getCpuTemperature() > 70 ? "HOT" : "OK");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Errore lettura temperatura: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    @GetMapping("/api/system/history")
+    public ResponseEntity<Map<String, Object>> getSystemHistory(
+            @RequestParam String metric,
+            @RequestParam(required = false) Long from,
+            @RequestParam(required = false) Long to,
+            @RequestParam(defaultValue = "60") int step) {
+        try {
+            long toMillis = to != null ? to : System.currentTimeMillis();
+            long fromMillis = from != null ? from : toMillis - 3_600_000L;
+            List<HistoryPoint> points = metricsHistoryService.query(metric, fromMillis, toMillis, step);
+            Map<String, Object> response = new HashMap<>();
+            response.put("metric", metric);
+            response.put("from", fromMillis);
+            response.put("to", toMillis);
+            response.put("step", step);
+            response.put("resolution", metricsHistoryService.selectTier(fromMillis, toMillis, step));
+            response.put("points", points);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Errore lettura storico: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    // =================== EVENTI PUSH (SSE) ===================
+
+    @GetMapping(value = "/api/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents() {
+        // Nessun timeout: la connessione resta aperta finché il client non la chiude
+        SseEmitter emitter = new SseEmitter(0L);
+        DeviceEventBus.Subscription subscription = eventBus.subscribe("sse", (DeviceEvent event) -> {
+            try {
+                emitter.send(SseEmitter.event().name(event.getType()).data(event, MediaType.APPLICATION_JSON));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        return emitter;
+    }
+
+    // =================== API COMPATIBILITÀ (per frontend esistente) ===================
+
+    @PostMapping("/api/led/toggle")
+    public ResponseEntity<Map<String, Object>> toggleLed() {
+        try {
+            boolean newState = gpioService.toggleLed();
+            Map<String, Object> response = new HashMap<>();
+            response.put("isOn", newState);
+            response.put("message", "LED " + (newState ? "acceso" : "spento"));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Errore nel controllo del LED: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    @GetMapping("/api/led/status")
+    public ResponseEntity<Map<String, Object>> getLedStatus() {
+        try {
+            boolean isOn = gpioService.isLedOn();
+            Map<String, Object> response = new HashMap<>();
+            response.put("isOn", isOn);
+            response.put("message", "LED " + (isOn ? "acceso" : "spento"));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Errore nel recupero stato LED: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    @PostMapping("/api/led/on")
+    public ResponseEntity<Map<String, Object>> turnOnLed() {
+        try {
+            gpioService.turnOnLed();
+            Map<String, Object> response = new HashMap<>();
+            response.put("isOn", true);
+            response.put("message", "LED acceso");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Errore nell'accensione del LED: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    @PostMapping("/api/led/off")
+    public ResponseEntity<Map<String, Object>> turnOffLed() {
+        try {
+            gpioService.turnOffLed();
+            Map<String, Object> response = new HashMap<>();
+            response.put("isOn", false);
+            response.put("message", "LED spento");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Errore nello spegnimento del LED: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+}
\ No newline at end of file
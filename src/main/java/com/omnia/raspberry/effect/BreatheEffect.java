@@ -0,0 +1,37 @@
+package com.omnia.raspberry.effect;
+
+/**
+ * Respiro: il colore scelto pulsa seguendo la tabella seno
+ */
+public class BreatheEffect implements LedEffect {
+
+    private final int red;
+    private final int green;
+    private final int blue;
+    private final long periodMillis;
+
+    public BreatheEffect(int red, int green, int blue, int speed) {
+        this.red = red;
+        this.green = green;
+        this.blue = blue;
+        this.periodMillis = EffectTables.cyclePeriodMillis(speed);
+    }
+
+    @Override
+    public String getName() {
+        return "breathe";
+    }
+
+    @Override
+    public void render(byte[] frame, int ledCount, long frameIndex, int fps) {
+        int level = EffectTables.SINE[EffectTables.phase(frameIndex, fps, periodMillis)];
+        byte r = (byte) (red * level / 255);
+        byte g = (byte) (green * level / 255);
+        byte b = (byte) (blue * level / 255);
+        for (int i = 0, offset = 0; i < ledCount; i++, offset += 3) {
+            frame[offset] = r;
+            frame[offset + 1] = g;
+            frame[offset + 2] = b;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.omnia.raspberry.effect;
+
+/**
+ * Tabelle precalcolate condivise dagli effetti
+ *
+ * Fase e tinta sono espresse su 8 bit (0-255 = un giro completo),
+ * così il rendering usa solo lookup e aritmetica intera.
+ */
+public final class EffectTables {
+
+    // (sin(2π·i/256) + 1) / 2 scalato su 0-255
+    public static final int[] SINE = new int[256];
+
+    // Ruota dei colori HSV a saturazione e valore massimi
+    public static final int[] HUE_RED = new int[256];
+    public static final int[] HUE_GREEN = new int[256];
+    public static final int[] HUE_BLUE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            SINE[i] = (int) Math.round((Math.sin(2 * Math.PI * i / 256.0) + 1.0) / 2.0 * 255.0);
+
+            // 6 settori da ~42.67 passi ciascuno
+            double h = i * 6.0 / 256.0;
+            int sector = (int) h;
+            int rising = (int) Math.round((h - sector) * 255.0);
+            int falling = 255 - rising;
+            int r, g, b;
+            switch (sector) {
+                case 0:  r = 255;     g = rising;  b = 0;       break;
+                case 1:  r = falling; g = 255;     b = 0;       break;
+                case 2:  r = 0;       g = 255;     b = rising;  break;
+                case 3:  r = 0;       g = falling; b = 255;     break;
+                case 4:  r = rising;  g = 0;       b = 255;     break;
+                default: r = 255;     g = 0;       b = falling; break;
+            }
+            HUE_RED[i] = r;
+            HUE_GREEN[i] = g;
+            HUE_BLUE[i] = b;
+        }
+    }
+
+    private EffectTables() {
+    }
+
+    /**
+     * Periodo di un ciclo in millisecondi per una velocità 1-100
+     * (velocità 1 → 10 s, velocità 100 → 0.5 s)
+     */
+    public static long cyclePeriodMillis(int speed) {
+        int clamped = Math.max(1, Math.min(100, speed));
+        return 10_000L - (clamped - 1) * 9_500L / 99;
+    }
+
+    /**
+     * Fase a 8 bit (0-255) del frame corrente per un ciclo di periodMillis
+     */
+    public static int phase(long frameIndex, int fps, long periodMillis) {
+        return (int) ((frameIndex * 256_000L / (fps * periodMillis)) & 0xFF);
+    }
+}
@@ -0,0 +1,25 @@
+package com.omnia.raspberry.effect;
+
+/**
+ * Effetto LED Strip renderizzato lato server
+ *
+ * render() viene chiamato a ogni frame dal LedEffectEngine e deve
+ * scrivere il frame nel buffer ricevuto senza allocare memoria.
+ */
+public interface LedEffect {
+
+    /**
+     * Nome dell'effetto (static, breathe, rainbow, strobe)
+     */
+    String getName();
+
+    /**
+     * Renderizza un frame
+     *
+     * @param frame      buffer RGB impacchettato (3 byte per LED), riusato tra i frame
+     * @param ledCount   numero di LED da scrivere
+     * @param frameIndex numero progressivo del frame dall'avvio dell'effetto
+     * @param fps        frame al secondo del motore
+     */
+    void render(byte[] frame, int ledCount, long frameIndex, int fps);
+}
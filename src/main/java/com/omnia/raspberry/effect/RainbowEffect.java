@@ -0,0 +1,29 @@
+package com.omnia.raspberry.effect;
+
+/**
+ * Arcobaleno: la ruota HSV distribuita sulla strip e fatta scorrere nel tempo
+ */
+public class RainbowEffect implements LedEffect {
+
+    private final long periodMillis;
+
+    public RainbowEffect(int speed) {
+        this.periodMillis = EffectTables.cyclePeriodMillis(speed);
+    }
+
+    @Override
+    public String getName() {
+        return "rainbow";
+    }
+
+    @Override
+    public void render(byte[] frame, int ledCount, long frameIndex, int fps) {
+        int basePhase = EffectTables.phase(frameIndex, fps, periodMillis);
+        for (int i = 0, offset = 0; i < ledCount; i++, offset += 3) {
+            int hue = (basePhase + i * 256 / ledCount) & 0xFF;
+            frame[offset] = (byte) EffectTables.HUE_RED[hue];
+            frame[offset + 1] = (byte) EffectTables.HUE_GREEN[hue];
+            frame[offset + 2] = (byte) EffectTables.HUE_BLUE[hue];
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.omnia.raspberry.effect;
+
+/**
+ * Strobo: lampeggio on/off del colore scelto
+ *
+ * La frequenza va da 1 a 20 lampi al secondo ed è limitata a fps/2
+ * (servono almeno un frame acceso e uno spento).
+ */
+public class StrobeEffect implements LedEffect {
+
+    private final int red;
+    private final int green;
+    private final int blue;
+    private final int flashesPerSecond;
+
+    public StrobeEffect(int red, int green, int blue, int speed) {
+        this.red = red;
+        this.green = green;
+        this.blue = blue;
+        int clamped = Math.max(1, Math.min(100, speed));
+        this.flashesPerSecond = 1 + (clamped - 1) * 19 / 99;
+    }
+
+    @Override
+    public String getName() {
+        return "strobe";
+    }
+
+    @Override
+    public void render(byte[] frame, int ledCount, long frameIndex, int fps) {
+        int rate = Math.max(1, Math.min(flashesPerSecond, fps / 2));
+        // Prima metà del periodo accesa, seconda metà spenta
+        boolean on = (frameIndex * rate * 2 / fps) % 2 == 0;
+        byte r = on ? (byte) red : 0;
+        byte g = on ? (byte) green : 0;
+        byte b = on ? (byte) blue : 0;
+        for (int i = 0, offset = 0; i < ledCount; i++, offset += 3) {
+            frame[offset] = r;
+            frame[offset + 1] = g;
+            frame[offset + 2] = b;
+        }
+    }
+}
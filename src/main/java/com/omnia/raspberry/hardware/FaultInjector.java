@@ -0,0 +1,105 @@
+package com.omnia.raspberry.hardware;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Latenza artificiale e guasti casuali per i backend simulati
+ *
+ * Ogni operazione attende latenza + jitter uniforme in [0, jitter] e
+ * fallisce con probabilità failureRate. L'attesa è un park fino alla
+ * scadenza assoluta: va chiamata fuori dai lock del driver, così come
+ * l'hardware reale non serializza linee diverse.
+ */
+public class FaultInjector {
+
+    public static final FaultInjector NONE = new FaultInjector("none", 0, 0, 0.0);
+
+    private final String name;
+    private final long latencyNanos;
+    private final long jitterNanos;
+    private final double failureRate;
+
+    private final AtomicLong operations = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public FaultInjector(String name, long latencyMicros, long jitterMicros, double failureRate) {
+        if (latencyMicros < 0 || jitterMicros < 0) {
+            throw new IllegalArgumentException("Latenza e jitter simulati non possono essere negativi");
+        }
+        if (failureRate < 0.0 || failureRate > 1.0) {
+            throw new IllegalArgumentException("failure-rate deve essere tra 0.0 e 1.0: " + failureRate);
+        }
+        this.name = name;
+        this.latencyNanos = latencyMicros * 1000L;
+        this.jitterNanos = jitterMicros * 1000L;
+        this.failureRate = failureRate;
+    }
+
+    public boolean isActive() {
+        return latencyNanos > 0 || jitterNanos > 0 || failureRate > 0.0;
+    }
+
+    /**
+     * Applica latenza e guasto a un'operazione del driver
+     *
+     * @throws IOException guasto simulato
+     */
+    public void apply(String operation) throws IOException {
+        delay();
+        if (shouldFail()) {
+            throw new IOException("Guasto simulato " + name + ": " + operation);
+        }
+    }
+
+    /**
+     * Attende la latenza simulata (conta l'operazione)
+     */
+    public void delay() {
+        if (!isActive()) {
+            return;
+        }
+        operations.incrementAndGet();
+        long nanos = latencyNanos;
+        if (jitterNanos > 0) {
+            nanos += ThreadLocalRandom.current().nextLong(jitterNanos + 1);
+        }
+        if (nanos <= 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + nanos;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Estrae l'esito dell'operazione: true = guasto (conta il guasto)
+     */
+    public boolean shouldFail() {
+        if (failureRate > 0.0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            failures.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("latencyMicros", latencyNanos / 1000L);
+        stats.put("jitterMicros", jitterNanos / 1000L);
+        stats.put("failureRate", failureRate);
+        stats.put("operations", operations.get());
+        stats.put("injectedFailures", failures.get());
+        return stats;
+    }
+}
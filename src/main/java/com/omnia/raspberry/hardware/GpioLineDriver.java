@@ -0,0 +1,91 @@
+package com.omnia.raspberry.hardware;
+
+import java.io.IOException;
+
+/**
+ * Driver di basso livello per le linee GPIO (numerazione BCM su gpiochip0)
+ *
+ * Le linee vengono "reclamate" una sola volta all'avvio e restano aperte
+ * per tutta la vita dell'applicazione: una scrittura non richiede più
+ * il fork di un processo gpioset ma una singola chiamata al driver.
+ */
+public interface GpioLineDriver extends AutoCloseable {
+
+    /**
+     * Nome descrittivo del backend (per log e monitoring)
+     */
+    String getName();
+
+    /**
+     * Reclama una linea come OUTPUT impostando il valore iniziale
+     */
+    void claimOutput(int line, boolean initialValue) throws IOException;
+
+    /**
+     * Reclama una linea come INPUT
+     */
+    void claimInput(int line) throws IOException;
+
+    /**
+     * Scrive il valore su una linea di output già reclamata
+     */
+    void write(int line, boolean value) throws IOException;
+
+    /**
+     * Scrive più linee di output con un'unica operazione
+     *
+     * Le maschere usano un bit per linea BCM: i bit di highMask vengono
+     * portati a 1, quelli di lowMask a 0. L'implementazione di default
+     * scrive una linea alla volta; i backend che lo supportano
+     * sovrascrivono il metodo con una scrittura coalescente.
+     */
+    default void writeLines(long highMask, long lowMask) throws IOException {
+        for (int line = 0; line < 64; line++) {
+            long bit = 1L << line;
+            if ((highMask & bit) != 0) {
+                write(line, true);
+            } else if ((lowMask & bit) != 0) {
+                write(line, false);
+            }
+        }
+    }
+
+    /**
+     * Legge il valore corrente di una linea reclamata
+     */
+    boolean read(int line) throws IOException;
+
+    /**
+     * Callback per i fronti rilevati su una linea di INPUT
+     */
+    @FunctionalInterface
+    interface EdgeListener {
+        void onEdge(int line, boolean level, long timestampNanos);
+    }
+
+    /**
+     * Avvia il monitoraggio dei fronti su una linea di INPUT reclamata
+     *
+     * I fronti vengono notificati da un thread del driver bloccato sugli
+     * eventi del kernel (o della libreria), senza polling. filterMicros
+     * è il filtro anti-rimbalzo applicato dal driver dove disponibile
+     * (0 = nessun filtro); timestampNanos è su base System.nanoTime().
+     */
+    void watchEdges(int line, int filterMicros, EdgeListener listener) throws IOException;
+
+    /**
+     * Interrompe il monitoraggio dei fronti su una linea
+     */
+    void unwatchEdges(int line);
+
+    /**
+     * Rilascia una linea reclamata
+     */
+    void release(int line);
+
+    /**
+     * Chiude il driver rilasciando tutte le linee
+     */
+    @Override
+    void close();
+}
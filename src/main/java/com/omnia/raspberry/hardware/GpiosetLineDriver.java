@@ -0,0 +1,199 @@
+package com.omnia.raspberry.hardware;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * GpioLineDriver di fallback basato sui tool gpiod (gpioset/gpioget)
+ *
+ * Usato solo quando pigpio non è inizializzabile (es. processo non root):
+ * ogni operazione esegue un fork di gpioset, quindi è lento.
+ * I fronti di input arrivano da un unico processo gpiomon (bloccato sugli
+ * eventi di linea del kernel) letto da un thread dedicato; finché una
+ * linea è monitorata la lettura usa l'ultimo livello ricevuto, perché
+ * gpiomon tiene la linea occupata.
+ */
+public class GpiosetLineDriver implements GpioLineDriver {
+
+    private static final Logger log = LoggerFactory.getLogger(GpiosetLineDriver.class);
+
+    private static final String CHIP = "gpiochip0";
+
+    private final Map<Integer, EdgeListener> edgeListeners = new TreeMap<>();
+    private volatile long monitoredLevels = 0L;
+    private volatile Process monitor;
+    private Thread monitorThread;
+
+    @Override
+    public String getName() {
+        return "gpioset";
+    }
+
+    @Override
+    public void claimOutput(int line, boolean initialValue) throws IOException {
+        write(line, initialValue);
+    }
+
+    @Override
+    public void claimInput(int line) throws IOException {
+        read(line);
+    }
+
+    @Override
+    public void write(int line, boolean value) throws IOException {
+        executeCommand("gpioset --mode=exit " + CHIP + " " + line + "=" + (value ? "1" : "0"));
+    }
+
+    @Override
+    public void writeLines(long highMask, long lowMask) throws IOException {
+        if ((highMask | lowMask) == 0) {
+            return;
+        }
+        // Un solo gpioset con tutte le coppie linea=valore
+        StringBuilder command = new StringBuilder("gpioset --mode=exit " + CHIP);
+        for (int line = 0; line < 64; line++) {
+            long bit = 1L << line;
+            if ((highMask & bit) != 0) {
+                command.append(' ').append(line).append("=1");
+            } else if ((lowMask & bit) != 0) {
+                command.append(' ').append(line).append("=0");
+            }
+        }
+        executeCommand(command.toString());
+    }
+
+    @Override
+    public boolean read(int line) throws IOException {
+        synchronized (this) {
+            if (edgeListeners.containsKey(line)) {
+                return (monitoredLevels & (1L << line)) != 0;
+            }
+        }
+        return "1".equals(executeCommand("gpioget " + CHIP + " " + line).trim());
+    }
+
+    @Override
+    public synchronized void watchEdges(int line, int filterMicros, EdgeListener listener) throws IOException {
+        // gpiomon v1 non ha un filtro anti-rimbalzo: resta quello software del chiamante
+        stopMonitor();
+        edgeListeners.put(line, listener);
+        startMonitor();
+    }
+
+    @Override
+    public synchronized void unwatchEdges(int line) {
+        if (edgeListeners.remove(line) != null) {
+            stopMonitor();
+            try {
+                startMonitor();
+            } catch (IOException e) {
+                log.warn("⚠️ Riavvio gpiomon fallito: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void release(int line) {
+        // gpioset rilascia la linea all'uscita del processo
+        unwatchEdges(line);
+    }
+
+    @Override
+    public synchronized void close() {
+        edgeListeners.clear();
+        stopMonitor();
+    }
+
+    private void startMonitor() throws IOException {
+        if (edgeListeners.isEmpty()) {
+            return;
+        }
+        // Livello iniziale letto prima che gpiomon occupi le linee
+        long levels = 0L;
+        List<String> command = new ArrayList<>(List.of("gpiomon", "-b", "-F", "%o %e", CHIP));
+        for (int line : edgeListeners.keySet()) {
+            if ("1".equals(executeCommand("gpioget " + CHIP + " " + line).trim())) {
+                levels |= 1L << line;
+            }
+            command.add(String.valueOf(line));
+        }
+        monitoredLevels = levels;
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Map<Integer, EdgeListener> listeners = Map.copyOf(edgeListeners);
+        Thread thread = new Thread(() -> readEvents(process, listeners), "gpio-edges");
+        thread.setDaemon(true);
+        monitor = process;
+        monitorThread = thread;
+        thread.start();
+    }
+
+    private void stopMonitor() {
+        if (monitor != null) {
+            monitor.destroy();
+            try {
+                monitorThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            monitor = null;
+            monitorThread = null;
+        }
+    }
+
+    // Thread dedicato: resta bloccato sulla pipe di gpiomon finché non arriva un fronte
+    private void readEvents(Process process, Map<Integer, EdgeListener> listeners) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII))) {
+            String event;
+            while ((event = reader.readLine()) != null) {
+                long timestamp = System.nanoTime();
+                String[] parts = event.trim().split(" ");
+                if (parts.length != 2) {
+                    continue;
+                }
+                int line;
+                try {
+                    line = Integer.parseInt(parts[0]);
+                } catch (NumberFormatException e) {
+                    log.warn("⚠️ gpiomon: {}", event);
+                    continue;
+                }
+                boolean rising = "1".equals(parts[1]);
+                monitoredLevels = rising ? monitoredLevels | (1L << line) : monitoredLevels & ~(1L << line);
+                EdgeListener listener = listeners.get(line);
+                if (listener != null) {
+                    listener.onEdge(line, rising, timestamp);
+                }
+            }
+        } catch (IOException e) {
+            // Pipe chiusa da stopMonitor
+        }
+        if (process == monitor) {
+            log.warn("⚠️ gpiomon terminato inaspettatamente: fronti di input non più monitorati");
+        }
+    }
+
+    private String executeCommand(String command) throws IOException {
+        try {
+            Process process = Runtime.getRuntime().exec(command);
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                String error = new String(process.getErrorStream().readAllBytes());
+                throw new IOException("Command failed: " + command + " - " + error);
+            }
+            return new String(process.getInputStream().readAllBytes());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Command interrupted: " + command, e);
+        }
+    }
+}
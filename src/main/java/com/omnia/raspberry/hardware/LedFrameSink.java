@@ -0,0 +1,30 @@
+package com.omnia.raspberry.hardware;
+
+/**
+ * Destinazione dei frame della LED Strip
+ *
+ * Un frame è RGB impacchettato: 3 byte per LED a partire dal LED 0.
+ * Il chiamante riusa il buffer, quindi l'implementazione non deve
+ * trattenerne il riferimento dopo il ritorno.
+ */
+public interface LedFrameSink {
+
+    /**
+     * Nome descrittivo del backend (per log e monitoring)
+     */
+    String getName();
+
+    /**
+     * Invia un frame completo (accende la strip se spenta)
+     *
+     * @return false se il dispositivo non è raggiungibile
+     */
+    boolean pushFrame(byte[] frame);
+
+    /**
+     * Accende o spegne la strip senza modificare i colori
+     *
+     * @return false se il dispositivo non è raggiungibile
+     */
+    boolean setPower(boolean isOn);
+}
@@ -0,0 +1,73 @@
+package com.omnia.raspberry.hardware;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * "PWM" acceso/spento su una linea GPIO lenta (driver gpioset)
+ *
+ * Con gpioset ogni scrittura è un fork da decine di ms: un PWM software a
+ * 100Hz non riesce a tenere il periodo e il duty ottenuto non ha senso.
+ * Qui la linea viene scritta solo al cambio di soglia: duty >= 50% accesa,
+ * sotto spenta. Il duty richiesto resta quello impostato (la rampa del
+ * controllo termico lo legge), quello ottenuto è 0 o 100.
+ */
+public class OnOffPwmDriver implements PwmDriver {
+
+    public static final double THRESHOLD_PERCENT = 50.0;
+
+    private final GpioLineDriver lineDriver;
+    private final int line;
+
+    private volatile double dutyCycle = 0.0;
+    private volatile Boolean lineState = null;
+    private volatile long writes = 0L;
+
+    public OnOffPwmDriver(GpioLineDriver lineDriver, int line) {
+        this.lineDriver = lineDriver;
+        this.line = line;
+    }
+
+    @Override
+    public String getName() {
+        return "on-off";
+    }
+
+    @Override
+    public boolean requiresGpioLine() {
+        return true;
+    }
+
+    @Override
+    public synchronized void setDutyCycle(double percent) throws IOException {
+        double clamped = Math.max(0.0, Math.min(100.0, percent));
+        boolean on = clamped >= THRESHOLD_PERCENT;
+        if (lineState == null || lineState != on) {
+            lineDriver.write(line, on);
+            lineState = on;
+            writes++;
+        }
+        dutyCycle = clamped;
+    }
+
+    @Override
+    public double getDutyCycle() {
+        return dutyCycle;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("backend", getName());
+        stats.put("requestedDutyCycle", dutyCycle);
+        stats.put("achievedDutyCycle", Boolean.TRUE.equals(lineState) ? 100.0 : 0.0);
+        stats.put("thresholdPercent", THRESHOLD_PERCENT);
+        stats.put("writes", writes);
+        return stats;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,184 @@
+package com.omnia.raspberry.hardware;
+
+import com.pi4j.library.pigpio.PiGpio;
+import com.pi4j.library.pigpio.PiGpioMode;
+import com.pi4j.library.pigpio.PiGpioState;
+import com.pi4j.library.pigpio.PiGpioStateChangeListener;
+import com.pi4j.library.pigpio.internal.PIGPIO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+
+/**
+ * GpioLineDriver basato sulla libreria nativa pigpio di Pi4J
+ *
+ * La sessione pigpio viene inizializzata una volta sola e mantiene
+ * la mappatura dei registri GPIO aperta: ogni scrittura è una
+ * chiamata nativa di pochi microsecondi.
+ * I fronti sulle linee di input arrivano dal thread di alert di pigpio,
+ * con il glitch filter hardware-timed della libreria come anti-rimbalzo.
+ * Richiede accesso root (container --privileged).
+ */
+public class PigpioLineDriver implements GpioLineDriver {
+
+    private static final Logger log = LoggerFactory.getLogger(PigpioLineDriver.class);
+
+    private final PiGpio piGpio;
+
+    // Bitmask delle linee reclamate (BCM 0-31)
+    private volatile long claimedOutputs = 0L;
+    private volatile long claimedInputs = 0L;
+
+    // Listener di fronte registrati su pigpio, per linea
+    private final PiGpioStateChangeListener[] edgeListeners = new PiGpioStateChangeListener[32];
+
+    public PigpioLineDriver() throws IOException {
+        try {
+            this.piGpio = PiGpio.newNativeInstance();
+            this.piGpio.initialize();
+        } catch (Exception | LinkageError e) {
+            throw new IOException("Inizializzazione pigpio fallita: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "pigpio";
+    }
+
+    @Override
+    public synchronized void claimOutput(int line, boolean initialValue) throws IOException {
+        checkLine(line);
+        try {
+            piGpio.gpioSetMode(line, PiGpioMode.OUTPUT);
+            piGpio.gpioWrite(line, PiGpioState.from(initialValue));
+            claimedOutputs |= 1L << line;
+            claimedInputs &= ~(1L << line);
+        } catch (Exception e) {
+            throw new IOException("Claim output fallito per linea " + line + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void claimInput(int line) throws IOException {
+        checkLine(line);
+        try {
+            piGpio.gpioSetMode(line, PiGpioMode.INPUT);
+            claimedInputs |= 1L << line;
+            claimedOutputs &= ~(1L << line);
+        } catch (Exception e) {
+            throw new IOException("Claim input fallito per linea " + line + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void write(int line, boolean value) throws IOException {
+        if ((claimedOutputs & (1L << line)) == 0) {
+            throw new IOException("Linea " + line + " non reclamata come OUTPUT");
+        }
+        try {
+            piGpio.gpioWrite(line, value);
+        } catch (Exception e) {
+            throw new IOException("Scrittura fallita su linea " + line + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void writeLines(long highMask, long lowMask) throws IOException {
+        long requested = highMask | lowMask;
+        if ((requested & ~claimedOutputs) != 0) {
+            throw new IOException("Linee non reclamate come OUTPUT: mask 0x" + Long.toHexString(requested & ~claimedOutputs));
+        }
+        try {
+            // Banco 0-31: una scrittura sul registro SET e una sul registro CLEAR
+            if (highMask != 0) {
+                PIGPIO.gpioWrite_Bits_0_31_Set((int) highMask);
+            }
+            if (lowMask != 0) {
+                PIGPIO.gpioWrite_Bits_0_31_Clear((int) lowMask);
+            }
+        } catch (Exception | UnsatisfiedLinkError e) {
+            throw new IOException("Scrittura batch fallita: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean read(int line) throws IOException {
+        if (((claimedOutputs | claimedInputs) & (1L << line)) == 0) {
+            throw new IOException("Linea " + line + " non reclamata");
+        }
+        try {
+            return piGpio.gpioRead(line) == PiGpioState.HIGH;
+        } catch (Exception e) {
+            throw new IOException("Lettura fallita su linea " + line + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void watchEdges(int line, int filterMicros, EdgeListener listener) throws IOException {
+        if ((claimedInputs & (1L << line)) == 0) {
+            throw new IOException("Linea " + line + " non reclamata come INPUT");
+        }
+        unwatchEdges(line);
+        try {
+            // Il glitch filter di pigpio accetta al massimo 300 ms
+            piGpio.gpioGlitchFilter(line, Math.min(filterMicros, 300_000));
+            PiGpioStateChangeListener pigpioListener = event ->
+                    listener.onEdge(event.pin(), event.state() == PiGpioState.HIGH, System.nanoTime());
+            piGpio.addPinListener(line, pigpioListener);
+            edgeListeners[line] = pigpioListener;
+        } catch (Exception e) {
+            throw new IOException("Monitoraggio fronti fallito su linea " + line + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void unwatchEdges(int line) {
+        if (line < 0 || line > 31 || edgeListeners[line] == null) {
+            return;
+        }
+        try {
+            piGpio.removePinListener(line, edgeListeners[line]);
+            piGpio.gpioGlitchFilter(line, 0);
+        } catch (Exception e) {
+            log.warn("⚠️ Rimozione listener linea {} fallita: {}", line, e.getMessage());
+        }
+        edgeListeners[line] = null;
+    }
+
+    @Override
+    public synchronized void release(int line) {
+        if (line < 0 || line > 31) {
+            return;
+        }
+        unwatchEdges(line);
+        if (((claimedOutputs | claimedInputs) & (1L << line)) != 0) {
+            try {
+                // Riporta la linea in INPUT (alta impedenza) come farebbe il kernel al rilascio
+                piGpio.gpioSetMode(line, PiGpioMode.INPUT);
+            } catch (Exception e) {
+                log.warn("⚠️ Rilascio linea {} fallito: {}", line, e.getMessage());
+            }
+        }
+        claimedOutputs &= ~(1L << line);
+        claimedInputs &= ~(1L << line);
+    }
+
+    @Override
+    public synchronized void close() {
+        for (int line = 0; line < 32; line++) {
+            release(line);
+        }
+        try {
+            piGpio.shutdown();
+        } catch (Exception e) {
+            log.warn("⚠️ Chiusura pigpio fallita: {}", e.getMessage());
+        }
+    }
+
+    private void checkLine(int line) throws IOException {
+        if (line < 0 || line > 31) {
+            throw new IOException("Linea " + line + " fuori dal banco 0-31");
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.omnia.raspberry.hardware;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Driver PWM per un singolo canale (ventola su GPIO 12)
+ */
+public interface PwmDriver extends AutoCloseable {
+
+    /**
+     * Nome descrittivo del backend (sysfs, software, simulated)
+     */
+    String getName();
+
+    /**
+     * true se il driver pilota la linea tramite GpioLineDriver
+     * (la linea va reclamata come OUTPUT); false se la linea è
+     * assegnata alla periferica PWM e non va toccata come GPIO.
+     */
+    boolean requiresGpioLine();
+
+    /**
+     * Imposta il duty cycle richiesto (0-100%)
+     */
+    void setDutyCycle(double percent) throws IOException;
+
+    /**
+     * Duty cycle richiesto (0-100%)
+     */
+    double getDutyCycle();
+
+    /**
+     * Stato misurato: duty cycle ottenuto, frequenza e jitter di temporizzazione
+     */
+    Map<String, Object> getStats();
+
+    @Override
+    void close();
+}
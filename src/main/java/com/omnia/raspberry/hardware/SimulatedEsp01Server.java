@@ -0,0 +1,152 @@
+package com.omnia.raspberry.hardware;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Controller ESP-01S simulato: server HTTP locale con le stesse API del firmware
+ *
+ * GET /        → identificazione (probe del circuit breaker)
+ * POST /led    → comando JSON (colore singolo LED, power, brightness, effetto)
+ * POST /relay  → {"state": true|false}
+ * POST /frame  → frame binario RGB, 3 byte per LED
+ *
+ * Il firmware gestisce una richiesta alla volta: la concorrenza del server
+ * è limitata (simulation.esp01.concurrency, default 1) e ogni richiesta
+ * passa dal FaultInjector, che ritarda la risposta e con la probabilità
+ * configurata risponde 500.
+ *
+ * Senza -Dsun.net.httpserver.nodelay=true il delayed ACK aggiunge ~40 ms a
+ * ogni richiesta keep-alive: la proprietà è di JVM e la imposta chi avvia
+ * la simulazione (HardwareConfig, @Fork dei benchmark), non il server.
+ */
+public class SimulatedEsp01Server implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final FaultInjector faults;
+
+    private final AtomicLong ledCommands = new AtomicLong();
+    private final AtomicLong relayCommands = new AtomicLong();
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong probes = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile boolean relayState = false;
+    private volatile int lastFrameLeds = 0;
+    private volatile String lastLedCommand = "";
+
+    public SimulatedEsp01Server(int port, int concurrency, FaultInjector faults) throws IOException {
+        this.faults = faults;
+        AtomicInteger threadId = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, concurrency), runnable -> {
+            Thread thread = new Thread(runnable, "esp01-sim-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public boolean isRelayOn() {
+        return relayState;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readAllBytes();
+            }
+            faults.delay();
+            if (faults.shouldFail()) {
+                respond(exchange, 500, "{\"error\":\"guasto simulato\"}");
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            boolean post = "POST".equals(exchange.getRequestMethod());
+            if (path.equals("/") && !post) {
+                probes.incrementAndGet();
+                respond(exchange, 200, "ESP-01S WS2812B Controller (simulato)");
+            } else if (path.equals("/led") && post) {
+                ledCommands.incrementAndGet();
+                lastLedCommand = new String(body, StandardCharsets.UTF_8);
+                respond(exchange, 200, "{\"status\":\"ok\"}");
+            } else if (path.equals("/relay") && post) {
+                String json = new String(body, StandardCharsets.UTF_8).replace(" ", "");
+                if (!json.contains("\"state\":true") && !json.contains("\"state\":false")) {
+                    rejected.incrementAndGet();
+                    respond(exchange, 400, "{\"error\":\"state mancante\"}");
+                    return;
+                }
+                relayCommands.incrementAndGet();
+                relayState = json.contains("\"state\":true");
+                respond(exchange, 200, "{\"status\":\"ok\",\"state\":" + relayState + "}");
+            } else if (path.equals("/frame") && post) {
+                if (body.length == 0 || body.length % 3 != 0) {
+                    rejected.incrementAndGet();
+                    respond(exchange, 400, "{\"error\":\"frame non multiplo di 3 byte\"}");
+                    return;
+                }
+                frames.incrementAndGet();
+                lastFrameLeds = body.length / 3;
+                respond(exchange, 200, "{\"status\":\"ok\",\"leds\":" + lastFrameLeds + "}");
+            } else {
+                rejected.incrementAndGet();
+                respond(exchange, 404, "{\"error\":\"endpoint sconosciuto\"}");
+            }
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("url", getBaseUrl());
+        stats.put("probes", probes.get());
+        stats.put("ledCommands", ledCommands.get());
+        stats.put("relayCommands", relayCommands.get());
+        stats.put("frames", frames.get());
+        stats.put("rejected", rejected.get());
+        stats.put("relayState", relayState);
+        stats.put("lastFrameLeds", lastFrameLeds);
+        stats.put("lastLedCommand", lastLedCommand);
+        stats.put("faults", faults.getStats());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.omnia.raspberry.hardware;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * GpioLineDriver simulato in memoria (gpio.simulation.mode=true)
+ *
+ * Permette di eseguire il backend e i test senza Raspberry Pi.
+ * I fronti generati da simulateInput vengono notificati da un thread
+ * dedicato, come farebbero i driver reali.
+ * Claim, letture e scritture passano dal FaultInjector (latenza e guasti
+ * configurabili con simulation.gpio.*) prima di prendere il monitor.
+ */
+public class SimulatedGpioLineDriver implements GpioLineDriver {
+
+    private final FaultInjector faults;
+
+    private long claimedOutputs = 0L;
+    private long claimedInputs = 0L;
+    private long values = 0L;
+
+    private final EdgeListener[] edgeListeners = new EdgeListener[64];
+    private ExecutorService edgeThread;
+
+    public SimulatedGpioLineDriver() {
+        this(FaultInjector.NONE);
+    }
+
+    public SimulatedGpioLineDriver(FaultInjector faults) {
+        this.faults = faults;
+    }
+
+    @Override
+    public String getName() {
+        return "simulated";
+    }
+
+    public FaultInjector getFaults() {
+        return faults;
+    }
+
+    @Override
+    public void claimOutput(int line, boolean initialValue) throws IOException {
+        faults.apply("claim");
+        synchronized (this) {
+            checkLine(line);
+            claimedOutputs |= 1L << line;
+            claimedInputs &= ~(1L << line);
+            setValue(line, initialValue);
+        }
+    }
+
+    @Override
+    public void claimInput(int line) throws IOException {
+        faults.apply("claim");
+        synchronized (this) {
+            checkLine(line);
+            claimedInputs |= 1L << line;
+            claimedOutputs &= ~(1L << line);
+        }
+    }
+
+    @Override
+    public void write(int line, boolean value) throws IOException {
+        faults.apply("write");
+        synchronized (this) {
+            if ((claimedOutputs & (1L << line)) == 0) {
+                throw new IOException("Linea " + line + " non reclamata come OUTPUT");
+            }
+            setValue(line, value);
+        }
+    }
+
+    @Override
+    public void writeLines(long highMask, long lowMask) throws IOException {
+        faults.apply("writeLines");
+        synchronized (this) {
+            long requested = highMask | lowMask;
+            if ((requested & ~claimedOutputs) != 0) {
+                throw new IOException("Linee non reclamate come OUTPUT: mask 0x" + Long.toHexString(requested & ~claimedOutputs));
+            }
+            values = (values | highMask) & ~lowMask;
+        }
+    }
+
+    @Override
+    public boolean read(int line) throws IOException {
+        faults.apply("read");
+        synchronized (this) {
+            if (((claimedOutputs | claimedInputs) & (1L << line)) == 0) {
+                throw new IOException("Linea " + line + " non reclamata");
+            }
+            return (values & (1L << line)) != 0;
+        }
+    }
+
+    /**
+     * Forza il livello di una linea di INPUT (simula un segnale esterno)
+     */
+    public synchronized void simulateInput(int line, boolean value) throws IOException {
+        if ((claimedInputs & (1L << line)) == 0) {
+            throw new IOException("Linea " + line + " non reclamata come INPUT");
+        }
+        boolean previous = (values & (1L << line)) != 0;
+        setValue(line, value);
+        EdgeListener listener = edgeListeners[line];
+        if (listener != null && previous != value) {
+            long timestamp = System.nanoTime();
+            edgeThread.execute(() -> listener.onEdge(line, value, timestamp));
+        }
+    }
+
+    @Override
+    public synchronized void watchEdges(int line, int filterMicros, EdgeListener listener) throws IOException {
+        if ((claimedInputs & (1L << line)) == 0) {
+            throw new IOException("Linea " + line + " non reclamata come INPUT");
+        }
+        if (edgeThread == null) {
+            edgeThread = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "gpio-edges");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        edgeListeners[line] = listener;
+    }
+
+    @Override
+    public synchronized void unwatchEdges(int line) {
+        if (line >= 0 && line < 64) {
+            edgeListeners[line] = null;
+        }
+    }
+
+    @Override
+    public synchronized void release(int line) {
+        if (line < 0 || line > 63) {
+            return;
+        }
+        edgeListeners[line] = null;
+        claimedOutputs &= ~(1L << line);
+        claimedInputs &= ~(1L << line);
+        values &= ~(1L << line);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (edgeThread != null) {
+            edgeThread.shutdownNow();
+            edgeThread = null;
+        }
+        Arrays.fill(edgeListeners, null);
+        claimedOutputs = 0L;
+        claimedInputs = 0L;
+        values = 0L;
+    }
+
+    private void setValue(int line, boolean value) {
+        if (value) {
+            values |= 1L << line;
+        } else {
+            values &= ~(1L << line);
+        }
+    }
+
+    private void checkLine(int line) throws IOException {
+        if (line < 0 || line > 63) {
+            throw new IOException("Linea " + line + " non valida");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.omnia.raspberry.hardware;
+
+/**
+ * LedFrameSink simulato in memoria (gpio.simulation.mode=true)
+ *
+ * Conserva l'ultimo frame ricevuto e conta i frame inviati.
+ */
+public class SimulatedLedFrameSink implements LedFrameSink {
+
+    private byte[] lastFrame = new byte[0];
+    private boolean power = false;
+    private long framesReceived = 0;
+
+    @Override
+    public String getName() {
+        return "simulated";
+    }
+
+    @Override
+    public synchronized boolean pushFrame(byte[] frame) {
+        if (lastFrame.length != frame.length) {
+            lastFrame = new byte[frame.length];
+        }
+        System.arraycopy(frame, 0, lastFrame, 0, frame.length);
+        power = true;
+        framesReceived++;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean setPower(boolean isOn) {
+        power = isOn;
+        return true;
+    }
+
+    public synchronized byte[] getLastFrame() {
+        return lastFrame.clone();
+    }
+
+    public synchronized boolean isPower() {
+        return power;
+    }
+
+    public synchronized long getFramesReceived() {
+        return framesReceived;
+    }
+}
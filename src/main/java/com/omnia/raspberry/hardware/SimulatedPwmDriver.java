@@ -0,0 +1,67 @@
+package com.omnia.raspberry.hardware;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * PwmDriver simulato in memoria (gpio.simulation.mode=true)
+ *
+ * Latenza e guasti delle scritture configurabili con simulation.pwm.*
+ */
+public class SimulatedPwmDriver implements PwmDriver {
+
+    private final int frequencyHz;
+    private final FaultInjector faults;
+    private volatile double dutyCycle = 0.0;
+
+    public SimulatedPwmDriver(int frequencyHz) {
+        this(frequencyHz, FaultInjector.NONE);
+    }
+
+    public SimulatedPwmDriver(int frequencyHz, FaultInjector faults) {
+        this.frequencyHz = frequencyHz;
+        this.faults = faults;
+    }
+
+    @Override
+    public String getName() {
+        return "simulated";
+    }
+
+    @Override
+    public boolean requiresGpioLine() {
+        return false;
+    }
+
+    @Override
+    public void setDutyCycle(double percent) throws IOException {
+        faults.apply("setDutyCycle");
+        dutyCycle = Math.max(0.0, Math.min(100.0, percent));
+    }
+
+    @Override
+    public double getDutyCycle() {
+        return dutyCycle;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("backend", getName());
+        stats.put("requestedDutyCycle", dutyCycle);
+        stats.put("achievedDutyCycle", dutyCycle);
+        stats.put("frequencyHz", frequencyHz);
+        stats.put("jitterAvgMicros", 0.0);
+        stats.put("jitterMaxMicros", 0.0);
+        if (faults.isActive()) {
+            stats.put("faults", faults.getStats());
+        }
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        dutyCycle = 0.0;
+    }
+}
@@ -0,0 +1,201 @@
+package com.omnia.raspberry.hardware;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * PWM software su una linea GPIO (fallback se manca il PWM hardware)
+ *
+ * Un thread ad alta priorità genera i fronti con scadenze assolute su
+ * System.nanoTime(): parcheggia fino a poco prima del fronte e poi
+ * attende in spin, così il ritardo di risveglio non si accumula.
+ * Per ogni fronte misura il ritardo rispetto alla scadenza (jitter)
+ * e ricava il duty cycle effettivo dai fronti reali.
+ * Con duty 0% o 100% il thread si ferma e la linea resta fissa.
+ * Richiede un driver di linea con scritture in microsecondi (pigpio o
+ * simulato): sopra gpioset si usa OnOffPwmDriver.
+ */
+public class SoftwarePwmDriver implements PwmDriver {
+
+    // Margine di spin prima di ogni fronte
+    private static final long SPIN_NANOS = 100_000L;
+
+    private final GpioLineDriver lineDriver;
+    private final int line;
+    private final long periodNanos;
+
+    private volatile double dutyCycle = 0.0;
+    // setDutyCycle può attendere la fine del thread PWM: niente synchronized
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile long onNanos = 0L;
+    private Thread worker;
+    private volatile boolean running = false;
+
+    // Statistiche (scritte dal solo thread PWM)
+    private volatile double jitterAvgNanos = 0.0;
+    private volatile long jitterMaxNanos = 0L;
+    private volatile double achievedDutyCycle = 0.0;
+    private volatile long cycles = 0L;
+    private volatile long writeErrors = 0L;
+
+    public SoftwarePwmDriver(GpioLineDriver lineDriver, int line, int frequencyHz) {
+        if (!supports(lineDriver)) {
+            throw new IllegalArgumentException("PWM software non supportato sul driver " + lineDriver.getName()
+                    + ": scritture troppo lente per un periodo di " + (1000 / Math.max(1, frequencyHz)) + "ms");
+        }
+        this.lineDriver = lineDriver;
+        this.line = line;
+        this.periodNanos = 1_000_000_000L / Math.max(1, frequencyHz);
+    }
+
+    /**
+     * true se il driver scrive la linea abbastanza in fretta per generare i fronti
+     */
+    public static boolean supports(GpioLineDriver lineDriver) {
+        return lineDriver instanceof PigpioLineDriver || lineDriver instanceof SimulatedGpioLineDriver;
+    }
+
+    @Override
+    public String getName() {
+        return "software";
+    }
+
+    @Override
+    public boolean requiresGpioLine() {
+        return true;
+    }
+
+    @Override
+    public void setDutyCycle(double percent) throws IOException {
+        lock.lock();
+        try {
+            double clamped = Math.max(0.0, Math.min(100.0, percent));
+            dutyCycle = clamped;
+            onNanos = Math.round(periodNanos * clamped / 100.0);
+
+            if (clamped <= 0.0 || clamped >= 100.0) {
+                stopWorker();
+                lineDriver.write(line, clamped >= 100.0);
+                achievedDutyCycle = clamped;
+            } else if (!running) {
+                startWorker();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public double getDutyCycle() {
+        return dutyCycle;
+    }
+
+    private void startWorker() {
+        running = true;
+        worker = new Thread(this::run, "software-pwm-" + line);
+        worker.setDaemon(true);
+        worker.setPriority(Thread.MAX_PRIORITY);
+        worker.start();
+    }
+
+    private void stopWorker() {
+        running = false;
+        if (worker != null) {
+            LockSupport.unpark(worker);
+            try {
+                worker.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            worker = null;
+        }
+    }
+
+    private void run() {
+        long cycleStart = System.nanoTime();
+        long lastRise = -1;
+        long lastFall = -1;
+        while (running) {
+            long high = onNanos;
+
+            // Fronte di salita
+            long rise = waitUntil(cycleStart);
+            writeLine(true);
+            long fall = -1;
+            if (running) {
+                // Fronte di discesa
+                fall = waitUntil(cycleStart + high);
+                writeLine(false);
+            }
+
+            if (lastRise >= 0 && lastFall >= 0) {
+                // Duty effettivo del ciclo precedente, media mobile esponenziale
+                double measured = (lastFall - lastRise) * 100.0 / (rise - lastRise);
+                achievedDutyCycle = achievedDutyCycle * 0.9 + measured * 0.1;
+            }
+            lastRise = rise;
+            lastFall = fall;
+            cycles++;
+            cycleStart += periodNanos;
+
+            // Se il thread è rimasto indietro di più di un periodo riparte dal presente
+            long now = System.nanoTime();
+            if (now - cycleStart > periodNanos) {
+                cycleStart = now;
+            }
+        }
+    }
+
+    // Attende la scadenza e restituisce l'istante effettivo, aggiornando il jitter
+    private long waitUntil(long deadline) {
+        long remaining;
+        while (running && (remaining = deadline - System.nanoTime()) > SPIN_NANOS) {
+            LockSupport.parkNanos(remaining - SPIN_NANOS);
+        }
+        while (running && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        long now = System.nanoTime();
+        long late = now - deadline;
+        if (late > jitterMaxNanos) {
+            jitterMaxNanos = late;
+        }
+        jitterAvgNanos = jitterAvgNanos * 0.99 + late * 0.01;
+        return now;
+    }
+
+    private void writeLine(boolean value) {
+        try {
+            lineDriver.write(line, value);
+        } catch (IOException e) {
+            writeErrors++;
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("backend", getName());
+        stats.put("requestedDutyCycle", dutyCycle);
+        stats.put("achievedDutyCycle", Math.round(achievedDutyCycle * 10.0) / 10.0);
+        stats.put("frequencyHz", 1_000_000_000L / periodNanos);
+        stats.put("jitterAvgMicros", Math.round(jitterAvgNanos / 100.0) / 10.0);
+        stats.put("jitterMaxMicros", Math.round(jitterMaxNanos / 100.0) / 10.0);
+        stats.put("cycles", cycles);
+        stats.put("writeErrors", writeErrors);
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            stopWorker();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.omnia.raspberry.hardware;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * PWM hardware tramite /sys/class/pwm
+ *
+ * Su Raspberry Pi 4 GPIO 12 è PWM0 canale 0 (dtoverlay=pwm,pin=12,func=4).
+ * Il segnale è generato dalla periferica: jitter nullo e nessun thread.
+ */
+public class SysfsPwmDriver implements PwmDriver {
+
+    private static final Logger log = LoggerFactory.getLogger(SysfsPwmDriver.class);
+
+    private final Path chipPath;
+    private final Path channelPath;
+    private final int channel;
+    private final long periodNanos;
+    private volatile double dutyCycle = 0.0;
+    // Le scritture sysfs possono bloccare: lock esplicito al posto di synchronized
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public SysfsPwmDriver(Path chipPath, int channel, int frequencyHz) throws IOException {
+        this.chipPath = chipPath;
+        this.channel = channel;
+        this.channelPath = chipPath.resolve("pwm" + channel);
+        this.periodNanos = 1_000_000_000L / Math.max(1, frequencyHz);
+
+        if (!Files.isDirectory(channelPath)) {
+            write(chipPath.resolve("export"), String.valueOf(channel));
+            // udev può impiegare qualche ms a creare gli attributi del canale
+            for (int i = 0; i < 50 && !Files.isWritable(channelPath.resolve("period")); i++) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        // duty_cycle deve restare <= period: azzera prima di cambiare il periodo
+        write(channelPath.resolve("duty_cycle"), "0");
+        write(channelPath.resolve("period"), String.valueOf(periodNanos));
+        write(channelPath.resolve("enable"), "1");
+    }
+
+    public static boolean isAvailable(Path chipPath) {
+        return Files.isWritable(chipPath.resolve("export"));
+    }
+
+    @Override
+    public String getName() {
+        return "sysfs";
+    }
+
+    @Override
+    public boolean requiresGpioLine() {
+        return false;
+    }
+
+    @Override
+    public void setDutyCycle(double percent) throws IOException {
+        lock.lock();
+        try {
+            double clamped = Math.max(0.0, Math.min(100.0, percent));
+            long dutyNanos = Math.round(periodNanos * clamped / 100.0);
+            write(channelPath.resolve("duty_cycle"), String.valueOf(dutyNanos));
+            dutyCycle = clamped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public double getDutyCycle() {
+        return dutyCycle;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("backend", getName());
+        stats.put("requestedDutyCycle", dutyCycle);
+        stats.put("achievedDutyCycle", readAchievedDutyCycle());
+        stats.put("frequencyHz", 1_000_000_000L / periodNanos);
+        stats.put("jitterAvgMicros", 0.0);
+        stats.put("jitterMaxMicros", 0.0);
+        return stats;
+    }
+
+    private double readAchievedDutyCycle() {
+        try {
+            long period = Long.parseLong(read(channelPath.resolve("period")));
+            long duty = Long.parseLong(read(channelPath.resolve("duty_cycle")));
+            return period > 0 ? Math.round(duty * 1000.0 / period) / 10.0 : 0.0;
+        } catch (Exception e) {
+            return dutyCycle;
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            try {
+                write(channelPath.resolve("duty_cycle"), "0");
+                write(channelPath.resolve("enable"), "0");
+                write(chipPath.resolve("unexport"), String.valueOf(channel));
+            } catch (IOException e) {
+                log.warn("⚠️ Chiusura PWM sysfs fallita: {}", e.getMessage());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void write(Path path, String value) throws IOException {
+        Files.write(path, value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.US_ASCII).trim();
+    }
+}
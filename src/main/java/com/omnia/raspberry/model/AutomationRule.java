@@ -0,0 +1,62 @@
+package com.omnia.raspberry.model;
+
+/**
+ * Regola di automazione: trigger → azione su un pin di output
+ *
+ * Esempi:
+ *   PIR sale → relè 16 acceso per 5 minuti
+ *     {"triggerType":"edge","triggerKey":"21","edge":"rising","actionPin":16,"actionState":true,"durationMs":300000}
+ *   temperatura CPU > 70 → impulso buzzer
+ *     {"triggerType":"metric","triggerKey":"cpuTemperature","operator":">","threshold":70,"actionPin":26,"actionState":true,"durationMs":500}
+ */
+public class AutomationRule {
+    private String id;
+    private String name;
+    private boolean enabled = true;
+
+    // Trigger
+    private String triggerType;  // "edge" (input) | "pin" (output) | "metric"
+    private String triggerKey;   // numero pin o nome metrica
+    private String edge = "rising"; // edge/pin: "rising" | "falling" | "both"
+    private String operator = ">";  // metric: ">" | "<"
+    private double threshold;       // metric: soglia
+
+    // Azione
+    private int actionPin;
+    private boolean actionState = true;
+    private long durationMs;     // > 0: ripristina lo stato opposto dopo la durata
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public String getTriggerType() { return triggerType; }
+    public void setTriggerType(String triggerType) { this.triggerType = triggerType; }
+
+    public String getTriggerKey() { return triggerKey; }
+    public void setTriggerKey(String triggerKey) { this.triggerKey = triggerKey; }
+
+    public String getEdge() { return edge; }
+    public void setEdge(String edge) { this.edge = edge; }
+
+    public String getOperator() { return operator; }
+    public void setOperator(String operator) { this.operator = operator; }
+
+    public double getThreshold() { return threshold; }
+    public void setThreshold(double threshold) { this.threshold = threshold; }
+
+    public int getActionPin() { return actionPin; }
+    public void setActionPin(int actionPin) { this.actionPin = actionPin; }
+
+    public boolean isActionState() { return actionState; }
+    public void setActionState(boolean actionState) { this.actionState = actionState; }
+
+    public long getDurationMs() { return durationMs; }
+    public void setDurationMs(long durationMs) { this.durationMs = durationMs; }
+}
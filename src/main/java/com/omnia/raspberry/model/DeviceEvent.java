@@ -0,0 +1,34 @@
+package com.omnia.raspberry.model;
+
+public class DeviceEvent {
+    private String type;    // "pin" | "edge" | "metric"
+    private String key;     // numero pin o nome metrica
+    private Object value;   // nuovo stato / nuovo valore
+    private long timestamp; // epoch millis
+
+    public DeviceEvent(String type, String key, Object value) {
+        this.type = type;
+        this.key = key;
+        this.value = value;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public static DeviceEvent pin(int pinNumber, boolean state) {
+        return new DeviceEvent("pin", String.valueOf(pinNumber), state);
+    }
+
+    // Fronte rilevato su un pin di INPUT
+    public static DeviceEvent edge(int pinNumber, boolean level) {
+        return new DeviceEvent("edge", String.valueOf(pinNumber), level);
+    }
+
+    public static DeviceEvent metric(String name, double value) {
+        return new DeviceEvent("metric", name, value);
+    }
+
+    // Getters
+    public String getType() { return type; }
+    public String getKey() { return key; }
+    public Object getValue() { return value; }
+    public long getTimestamp() { return timestamp; }
+}
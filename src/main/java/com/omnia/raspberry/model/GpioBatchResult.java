@@ -0,0 +1,26 @@
+package com.omnia.raspberry.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class GpioBatchResult {
+    private Map<Integer, Boolean> applied = new LinkedHashMap<>(); // pin -> nuovo stato
+    private Map<Integer, String> errors = new LinkedHashMap<>();   // pin -> motivo scarto
+    private int hardwareWrites;   // operazioni effettive sul driver
+    private long latencyMicros;   // durata della scrittura hardware
+
+    // Getters and Setters
+    public Map<Integer, Boolean> getApplied() { return applied; }
+    public void setApplied(Map<Integer, Boolean> applied) { this.applied = applied; }
+
+    public Map<Integer, String> getErrors() { return errors; }
+    public void setErrors(Map<Integer, String> errors) { this.errors = errors; }
+
+    public int getHardwareWrites() { return hardwareWrites; }
+    public void setHardwareWrites(int hardwareWrites) { this.hardwareWrites = hardwareWrites; }
+
+    public long getLatencyMicros() { return latencyMicros; }
+    public void setLatencyMicros(long latencyMicros) { this.latencyMicros = latencyMicros; }
+
+    public boolean isSuccess() { return errors.isEmpty(); }
+}
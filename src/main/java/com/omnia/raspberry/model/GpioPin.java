@@ -1,53 +1,68 @@
 package com.omnia.raspberry.model;
 
-public class GpioPin {
-    private int pinNumber;
-    private String name;
-    private String type;
-    private boolean state;
-    private int pwmValue; // 0-255 per PWM
-    private String description;
-    private boolean enabled;
-    private int brightness; // 0-255 per LED brightness
-    private String effect; // per LED Strip effects (static, breathe, rainbow, strobe)
+/**
+ * Snapshot immutabile dello stato di un pin
+ *
+ * Ogni modifica crea una nuova istanza (withXxx) che GpioService
+ * pubblica nella tabella dei pin.
+ */
+public final class GpioPin {
+    private final int pinNumber;
+    private final String name;
+    private final String type;
+    private final boolean state;
+    private final int pwmValue; // 0-255 per PWM
+    private final String description;
+    private final boolean enabled;
+    private final int brightness; // 0-255 per LED brightness
+    private final String effect; // per LED Strip effects (static, breathe, rainbow, strobe)
 
     public GpioPin(int pinNumber, String name, String type, String description) {
+        this(pinNumber, name, type, false, 0, description, true, 255, "static");
+    }
+
+    private GpioPin(int pinNumber, String name, String type, boolean state, int pwmValue,
+                    String description, boolean enabled, int brightness, String effect) {
         this.pinNumber = pinNumber;
         this.name = name;
         this.type = type;
+        this.state = state;
+        this.pwmValue = pwmValue;
         this.description = description;
-        this.state = false;
-        this.pwmValue = 0;
-        this.enabled = true;
-        this.brightness = 255;
-        this.effect = "static";
+        this.enabled = enabled;
+        this.brightness = brightness;
+        this.effect = effect;
     }
 
-    // Getters and Setters
+    // Getters
     public int getPinNumber() { return pinNumber; }
-    public void setPinNumber(int pinNumber) { this.pinNumber = pinNumber; }
-
     public String getName() { return name; }
-    public void setName(String name) { this.name = name; }
-
     public String getType() { return type; }
-    public void setType(String type) { this.type = type; }
-
     public boolean isState() { return state; }
-    public void setState(boolean state) { this.state = state; }
-
     public int getPwmValue() { return pwmValue; }
-    public void setPwmValue(int pwmValue) { this.pwmValue = pwmValue; }
-
     public String getDescription() { return description; }
-    public void setDescription(String description) { this.description = description; }
-
     public boolean isEnabled() { return enabled; }
-    public void setEnabled(boolean enabled) { this.enabled = enabled; }
-
     public int getBrightness() { return brightness; }
-    public void setBrightness(int brightness) { this.brightness = brightness; }
-
     public String getEffect() { return effect; }
-    public void setEffect(String effect) { this.effect = effect; }
-}
\ No newline at end of file
+
+    // Copie modificate
+    public GpioPin withState(boolean state) {
+        return state == this.state ? this : new GpioPin(pinNumber, name, type, state, pwmValue, description, enabled, brightness, effect);
+    }
+
+    public GpioPin withPwmValue(int pwmValue) {
+        return new GpioPin(pinNumber, name, type, state, pwmValue, description, enabled, brightness, effect);
+    }
+
+    public GpioPin withEnabled(boolean enabled) {
+        return new GpioPin(pinNumber, name, type, state, pwmValue, description, enabled, brightness, effect);
+    }
+
+    public GpioPin withBrightness(int brightness) {
+        return new GpioPin(pinNumber, name, type, state, pwmValue, description, enabled, brightness, effect);
+    }
+
+    public GpioPin withEffect(String effect) {
+        return new GpioPin(pinNumber, name, type, state, pwmValue, description, enabled, brightness, effect);
+    }
+}
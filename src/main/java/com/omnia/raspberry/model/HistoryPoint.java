@@ -0,0 +1,28 @@
+package com.omnia.raspberry.model;
+
+public class HistoryPoint {
+    private long timestamp; // Inizio del bucket (epoch millis)
+    private double min;
+    private double max;
+    private double avg;
+
+    public HistoryPoint(long timestamp, double min, double max, double avg) {
+        this.timestamp = timestamp;
+        this.min = min;
+        this.max = max;
+        this.avg = avg;
+    }
+
+    // Getters and Setters
+    public long getTimestamp() { return timestamp; }
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+
+    public double getMin() { return min; }
+    public void setMin(double min) { this.min = min; }
+
+    public double getMax() { return max; }
+    public void setMax(double max) { this.max = max; }
+
+    public double getAvg() { return avg; }
+    public void setAvg(double avg) { this.avg = avg; }
+}
@@ -0,0 +1,23 @@
+package com.omnia.raspberry.model;
+
+import java.util.List;
+
+/**
+ * Sequenza temporizzata per un pin di output (buzzer, relè, LED di stato)
+ *
+ * durationsMs alterna ON e OFF a partire da ON: [100, 50, 100, 500]
+ * = acceso 100ms, spento 50ms, acceso 100ms, spento 500ms.
+ * repeat è il numero di ripetizioni (0 = fino a stop esplicito);
+ * al termine il pin viene lasciato spento.
+ */
+public class PinPattern {
+    private List<Long> durationsMs;
+    private int repeat = 1;
+
+    // Getters and Setters
+    public List<Long> getDurationsMs() { return durationsMs; }
+    public void setDurationsMs(List<Long> durationsMs) { this.durationsMs = durationsMs; }
+
+    public int getRepeat() { return repeat; }
+    public void setRepeat(int repeat) { this.repeat = repeat; }
+}
@@ -1,37 +1,121 @@
 package com.omnia.raspberry.model;
 
-public class SystemInfo {
-    private double cpuTemperature;
-    private double cpuUsage;
-    private double memoryUsage;
-    private double diskUsage;
-    private long uptime;
-    private String kernelVersion;
-    private boolean fanStatus;
-    private int fanSpeed; // Percentuale 0-100
-
-    // Getters and Setters
+/**
+ * Snapshot immutabile di un campionamento di sistema
+ *
+ * Costruito una volta per campione con il Builder e condiviso tra tutti
+ * i lettori: nessun setter, e gli array per core vengono copiati in uscita.
+ */
+public final class SystemInfo {
+    private static final double[] NONE = new double[0];
+
+    private final double cpuTemperature;
+    private final double cpuUsage;      // Percentuale busy totale (delta /proc/stat)
+    private final double cpuIowait;     // Percentuale iowait totale
+    private final double cpuIrq;        // Percentuale irq + softirq totale
+    private final double[] cpuCoreUsage;
+    private final double[] cpuCoreIowait;
+    private final double[] cpuCoreIrq;
+    private final double memoryUsage;
+    private final double diskUsage;
+    private final long uptime;
+    private final String kernelVersion;
+    private final boolean fanStatus;
+    private final int fanSpeed; // Percentuale 0-100
+
+    private SystemInfo(Builder builder) {
+        this.cpuTemperature = builder.cpuTemperature;
+        this.cpuUsage = builder.cpuUsage;
+        this.cpuIowait = builder.cpuIowait;
+        this.cpuIrq = builder.cpuIrq;
+        this.cpuCoreUsage = builder.cpuCoreUsage.clone();
+        this.cpuCoreIowait = builder.cpuCoreIowait.clone();
+        this.cpuCoreIrq = builder.cpuCoreIrq.clone();
+        this.memoryUsage = builder.memoryUsage;
+        this.diskUsage = builder.diskUsage;
+        this.uptime = builder.uptime;
+        this.kernelVersion = builder.kernelVersion;
+        this.fanStatus = builder.fanStatus;
+        this.fanSpeed = builder.fanSpeed;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Getters
     public double getCpuTemperature() { return cpuTemperature; }
-    public void setCpuTemperature(double cpuTemperature) { this.cpuTemperature = cpuTemperature; }
 
     public double getCpuUsage() { return cpuUsage; }
-    public void setCpuUsage(double cpuUsage) { this.cpuUsage = cpuUsage; }
+
+    public double getCpuIowait() { return cpuIowait; }
+
+    public double getCpuIrq() { return cpuIrq; }
+
+    public double[] getCpuCoreUsage() { return cpuCoreUsage.clone(); }
+
+    public double[] getCpuCoreIowait() { return cpuCoreIowait.clone(); }
+
+    public double[] getCpuCoreIrq() { return cpuCoreIrq.clone(); }
 
     public double getMemoryUsage() { return memoryUsage; }
-    public void setMemoryUsage(double memoryUsage) { this.memoryUsage = memoryUsage; }
 
     public double getDiskUsage() { return diskUsage; }
-    public void setDiskUsage(double diskUsage) { this.diskUsage = diskUsage; }
 
     public long getUptime() { return uptime; }
-    public void setUptime(long uptime) { this.uptime = uptime; }
 
     public String getKernelVersion() { return kernelVersion; }
-    public void setKernelVersion(String kernelVersion) { this.kernelVersion = kernelVersion; }
 
     public boolean isFanStatus() { return fanStatus; }
-    public void setFanStatus(boolean fanStatus) { this.fanStatus = fanStatus; }
 
     public int getFanSpeed() { return fanSpeed; }
-    public void setFanSpeed(int fanSpeed) { this.fanSpeed = fanSpeed; }
-}
\ No newline at end of file
+
+    public static final class Builder {
+        private double cpuTemperature;
+        private double cpuUsage;
+        private double cpuIowait;
+        private double cpuIrq;
+        private double[] cpuCoreUsage = NONE;
+        private double[] cpuCoreIowait = NONE;
+        private double[] cpuCoreIrq = NONE;
+        private double memoryUsage;
+        private double diskUsage;
+        private long uptime;
+        private String kernelVersion;
+        private boolean fanStatus;
+        private int fanSpeed;
+
+        private Builder() {
+        }
+
+        public Builder cpuTemperature(double cpuTemperature) { this.cpuTemperature = cpuTemperature; return this; }
+
+        public Builder cpuUsage(double cpuUsage) { this.cpuUsage = cpuUsage; return this; }
+
+        public Builder cpuIowait(double cpuIowait) { this.cpuIowait = cpuIowait; return this; }
+
+        public Builder cpuIrq(double cpuIrq) { this.cpuIrq = cpuIrq; return this; }
+
+        public Builder cpuCoreUsage(double[] cpuCoreUsage) { this.cpuCoreUsage = cpuCoreUsage; return this; }
+
+        public Builder cpuCoreIowait(double[] cpuCoreIowait) { this.cpuCoreIowait = cpuCoreIowait; return this; }
+
+        public Builder cpuCoreIrq(double[] cpuCoreIrq) { this.cpuCoreIrq = cpuCoreIrq; return this; }
+
+        public Builder memoryUsage(double memoryUsage) { this.memoryUsage = memoryUsage; return this; }
+
+        public Builder diskUsage(double diskUsage) { this.diskUsage = diskUsage; return this; }
+
+        public Builder uptime(long uptime) { this.uptime = uptime; return this; }
+
+        public Builder kernelVersion(String kernelVersion) { this.kernelVersion = kernelVersion; return this; }
+
+        public Builder fanStatus(boolean fanStatus) { this.fanStatus = fanStatus; return this; }
+
+        public Builder fanSpeed(int fanSpeed) { this.fanSpeed = fanSpeed; return this; }
+
+        public SystemInfo build() {
+            return new SystemInfo(this);
+        }
+    }
+}
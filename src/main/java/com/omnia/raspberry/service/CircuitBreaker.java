@@ -0,0 +1,96 @@
+package com.omnia.raspberry.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Circuit breaker minimale a tre stati
+ *
+ * CLOSED    → richieste ammesse, i fallimenti consecutivi vengono contati
+ * OPEN      → richieste rifiutate subito, un prober esterno ritenta in background
+ * HALF_OPEN → probe in corso: le richieste restano rifiutate fino all'esito
+ *
+ * Lo stato è volatile: il path della richiesta fa solo una lettura.
+ */
+public class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+
+    private volatile State state;
+    private int consecutiveFailures = 0;
+    private long transitions = 0;
+    private volatile long lastTransitionTime = System.currentTimeMillis();
+
+    public CircuitBreaker(String name, int failureThreshold, State initialState) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.state = initialState;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public synchronized long getTransitions() {
+        return transitions;
+    }
+
+    public boolean allowRequest() {
+        return state == State.CLOSED;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    /**
+     * @return true se questo fallimento ha aperto il circuito
+     */
+    public synchronized boolean recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            transitionTo(State.OPEN);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Passa in HALF_OPEN prima di un probe; false se il circuito non è OPEN
+     */
+    public synchronized boolean tryHalfOpen() {
+        if (state != State.OPEN) {
+            return false;
+        }
+        transitionTo(State.HALF_OPEN);
+        return true;
+    }
+
+    private void transitionTo(State newState) {
+        State oldState = state;
+        state = newState;
+        transitions++;
+        lastTransitionTime = System.currentTimeMillis();
+        log.info("🔁 Circuit breaker {}: {} → {}", name, oldState, newState);
+    }
+
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("state", state.name());
+        map.put("consecutiveFailures", consecutiveFailures);
+        map.put("failureThreshold", failureThreshold);
+        map.put("transitions", transitions);
+        map.put("lastTransition", lastTransitionTime);
+        return map;
+    }
+}
@@ -0,0 +1,187 @@
+package com.omnia.raspberry.service;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+
+/**
+ * Calcolo dell'utilizzo CPU dai delta dei jiffies in /proc/stat
+ *
+ * Il file resta aperto e viene riletto con seek(0); buffer e contatori
+ * sono array primitivi riusati, quindi un campionamento non alloca nulla
+ * (a parte il primo, che dimensiona gli array sul numero di core).
+ * L'indice 0 di ogni array è il totale, gli indici 1..N sono i core.
+ */
+public class CpuUsageCalculator {
+
+    // user nice system idle iowait irq softirq steal (guest è già incluso in user)
+    private static final int FIELDS = 8;
+    private static final int IDLE = 3;
+    private static final int IOWAIT = 4;
+    private static final int IRQ = 5;
+    private static final int SOFTIRQ = 6;
+
+    private final Path statPath;
+    private final byte[] buffer = new byte[16384];
+    private RandomAccessFile file;
+
+    private int cpuCount = -1; // core + riga aggregata
+    private long[] previous;
+    private long[] current;
+    private double[] busy;
+    private double[] iowait;
+    private double[] irq;
+    private boolean primed = false;
+
+    public CpuUsageCalculator(Path statPath) {
+        this.statPath = statPath;
+    }
+
+    /**
+     * Legge /proc/stat e aggiorna le percentuali rispetto al campione precedente
+     *
+     * @return true se sono disponibili percentuali valide (dal secondo campione)
+     */
+    public synchronized boolean sample() throws IOException {
+        if (file == null) {
+            file = new RandomAccessFile(statPath.toFile(), "r");
+        }
+        file.seek(0);
+        int length = 0;
+        int read;
+        while (length < buffer.length && (read = file.read(buffer, length, buffer.length - length)) > 0) {
+            length += read;
+        }
+
+        int rows = countCpuRows(length);
+        if (rows != cpuCount) {
+            // Primo campione o cambio numero di core (hotplug): ridimensiona
+            cpuCount = rows;
+            previous = new long[rows * FIELDS];
+            current = new long[rows * FIELDS];
+            busy = new double[rows];
+            iowait = new double[rows];
+            irq = new double[rows];
+            primed = false;
+        }
+
+        parse(length);
+
+        if (primed) {
+            for (int row = 0; row < cpuCount; row++) {
+                computeRow(row);
+            }
+        }
+
+        long[] swap = previous;
+        previous = current;
+        current = swap;
+        boolean valid = primed;
+        primed = true;
+        return valid;
+    }
+
+    private int countCpuRows(int length) {
+        int rows = 0;
+        int pos = 0;
+        while (pos + 3 <= length && buffer[pos] == 'c' && buffer[pos + 1] == 'p' && buffer[pos + 2] == 'u') {
+            rows++;
+            while (pos < length && buffer[pos] != '\n') {
+                pos++;
+            }
+            pos++;
+        }
+        return rows;
+    }
+
+    private void parse(int length) {
+        int pos = 0;
+        for (int row = 0; row < cpuCount; row++) {
+            // Salta l'etichetta "cpu" / "cpuN"
+            while (pos < length && buffer[pos] != ' ') {
+                pos++;
+            }
+            int base = row * FIELDS;
+            for (int field = 0; field < FIELDS; field++) {
+                while (pos < length && buffer[pos] == ' ') {
+                    pos++;
+                }
+                long value = 0;
+                while (pos < length && buffer[pos] >= '0' && buffer[pos] <= '9') {
+                    value = value * 10 + (buffer[pos] - '0');
+                    pos++;
+                }
+                current[base + field] = value;
+            }
+            while (pos < length && buffer[pos] != '\n') {
+                pos++;
+            }
+            pos++;
+        }
+    }
+
+    private void computeRow(int row) {
+        int base = row * FIELDS;
+        long total = 0;
+        for (int field = 0; field < FIELDS; field++) {
+            total += current[base + field] - previous[base + field];
+        }
+        if (total <= 0) {
+            busy[row] = 0.0;
+            iowait[row] = 0.0;
+            irq[row] = 0.0;
+            return;
+        }
+        long idleDelta = current[base + IDLE] - previous[base + IDLE];
+        long iowaitDelta = current[base + IOWAIT] - previous[base + IOWAIT];
+        long irqDelta = (current[base + IRQ] - previous[base + IRQ])
+                + (current[base + SOFTIRQ] - previous[base + SOFTIRQ]);
+        busy[row] = (total - idleDelta - iowaitDelta) * 100.0 / total;
+        iowait[row] = iowaitDelta * 100.0 / total;
+        irq[row] = irqDelta * 100.0 / total;
+    }
+
+    // =================== LETTURA RISULTATI ===================
+
+    public synchronized int getCoreCount() {
+        return Math.max(0, cpuCount - 1);
+    }
+
+    public synchronized double getTotalBusy() {
+        return cpuCount > 0 ? busy[0] : 0.0;
+    }
+
+    public synchronized double getTotalIowait() {
+        return cpuCount > 0 ? iowait[0] : 0.0;
+    }
+
+    public synchronized double getTotalIrq() {
+        return cpuCount > 0 ? irq[0] : 0.0;
+    }
+
+    /**
+     * Copia le percentuali per core nell'array di destinazione (lunghezza = getCoreCount())
+     */
+    public synchronized void copyCoreBusy(double[] target) {
+        System.arraycopy(busy, 1, target, 0, Math.min(target.length, cpuCount - 1));
+    }
+
+    public synchronized void copyCoreIowait(double[] target) {
+        System.arraycopy(iowait, 1, target, 0, Math.min(target.length, cpuCount - 1));
+    }
+
+    public synchronized void copyCoreIrq(double[] target) {
+        System.arraycopy(irq, 1, target, 0, Math.min(target.length, cpuCount - 1));
+    }
+
+    public synchronized void close() {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                // ignorato in chiusura
+            }
+            file = null;
+        }
+    }
+}
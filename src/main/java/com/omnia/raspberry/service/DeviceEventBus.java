@@ -0,0 +1,153 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.model.DeviceEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bus eventi in-process per stato pin e metriche
+ *
+ * publish() non blocca mai il chiamante: l'evento viene accodato nella
+ * coda limitata di ogni sottoscrittore (se piena si scarta il più vecchio).
+ * Ogni sottoscrittore ha il proprio thread di consegna: un client SSE
+ * bloccato su una send perde solo i propri eventi, senza fermare gli altri
+ * client né il motore regole.
+ * Con spring.threads.virtual.enabled su Java 21 i thread di consegna sono
+ * virtual thread.
+ */
+@Service
+public class DeviceEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceEventBus.class);
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    // Avvia un thread dedicato per ogni drain loop
+    private final Executor dispatcher;
+    private final int defaultQueueSize;
+
+    public DeviceEventBus(@Value("${events.client-queue-size:256}") int defaultQueueSize,
+                          @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.defaultQueueSize = defaultQueueSize;
+        if (virtualThreads && JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("event-bus-");
+            executor.setVirtualThreads(true);
+            this.dispatcher = executor;
+            return;
+        }
+        AtomicInteger counter = new AtomicInteger();
+        this.dispatcher = runnable -> {
+            Thread thread = new Thread(runnable, "event-bus-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.start();
+        };
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+        if (dispatcher instanceof SimpleAsyncTaskExecutor executor) {
+            executor.close();
+        }
+    }
+
+    public Subscription subscribe(String name, Consumer<DeviceEvent> consumer) {
+        return subscribe(name, defaultQueueSize, consumer);
+    }
+
+    public Subscription subscribe(String name, int queueSize, Consumer<DeviceEvent> consumer) {
+        Subscription subscription = new Subscription(name, queueSize, consumer);
+        subscriptions.add(subscription);
+        dispatcher.execute(subscription::drain);
+        return subscription;
+    }
+
+    public void publish(DeviceEvent event) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Sottoscrizione con coda limitata, politica drop-oldest e thread di consegna proprio
+     */
+    public class Subscription implements AutoCloseable {
+        private final String name;
+        private final Consumer<DeviceEvent> consumer;
+        private final LinkedBlockingDeque<DeviceEvent> queue;
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile boolean closed = false;
+        private volatile Thread drainThread;
+
+        private Subscription(String name, int capacity, Consumer<DeviceEvent> consumer) {
+            this.name = name;
+            this.consumer = consumer;
+            this.queue = new LinkedBlockingDeque<>(Math.max(1, capacity));
+        }
+
+        private void offer(DeviceEvent event) {
+            if (closed) {
+                return;
+            }
+            while (!queue.offerLast(event)) {
+                if (queue.pollFirst() != null) {
+                    dropped.incrementAndGet();
+                }
+            }
+        }
+
+        private void drain() {
+            // Registrato prima del controllo di closed: close() successivo interrompe la take()
+            drainThread = Thread.currentThread();
+            try {
+                while (!closed) {
+                    DeviceEvent event = queue.takeFirst();
+                    try {
+                        consumer.accept(event);
+                    } catch (Exception e) {
+                        log.warn("⚠️ Sottoscrittore {} rimosso: {}", name, e.getMessage());
+                        close();
+                    }
+                }
+            } catch (InterruptedException e) {
+                // close(): fine del thread di consegna
+            } finally {
+                drainThread = null;
+            }
+        }
+
+        public String getName() { return name; }
+
+        public long getDropped() { return dropped.get(); }
+
+        public boolean isClosed() { return closed; }
+
+        @Override
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+            queue.clear();
+            Thread thread = drainThread;
+            if (thread != null && thread != Thread.currentThread()) {
+                thread.interrupt();
+            }
+        }
+    }
+}
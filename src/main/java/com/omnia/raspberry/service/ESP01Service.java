@@ -1,15 +1,39 @@
 package com.omnia.raspberry.service;
 
+import com.omnia.raspberry.hardware.SimulatedEsp01Server;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.net.http.HttpClient;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Service per comunicazione con ESP-01S WS2812B Controller
@@ -23,46 +47,182 @@ import java.util.Map;
 @Service
 public class ESP01Service {
 
+    private static final Logger log = LoggerFactory.getLogger(ESP01Service.class);
+
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
     
     // ESP-01S Configuration
-    private static final String ESP01_BASE_URL = "http://192.168.1.101";
-    private static final int ESP01_PORT = 80;
     private static final String LED_ENDPOINT = "/led";
     private static final String RELAY_ENDPOINT = "/relay";
-    private static final int CONNECTION_TIMEOUT = 2000; // 2 secondi
+    private static final String FRAME_ENDPOINT = "/frame";
+    private final String esp01BaseUrl;
+    // /frame esiste solo sui firmware recenti: alla prima 404 si passa ai comandi /led per LED
+    private volatile boolean frameEndpointSupported = true;
+    // Fallback /led: un frame ogni ledFallbackIntervalNanos al massimo, i frame
+    // intermedi vengono fusi e l'ultimo parte a fine intervallo (sotto ledFallbackLock)
+    private final ReentrantLock ledFallbackLock = new ReentrantLock();
+    private volatile long ledFallbackIntervalNanos = TimeUnit.MILLISECONDS.toNanos(250);
+    // Ultimo frame consegnato via /led: si rinviano solo i LED cambiati
+    private byte[] lastLedFrame;
+    private long lastLedFrameNanos;
+    private boolean ledFrameSent;
+    private byte[] pendingLedFrame;
     
-    // Status tracking
-    private boolean esp01Available = false;
-    private long lastSuccessfulConnection = 0;
+    // Status tracking: il circuit breaker sostituisce il flag di disponibilità.
+    // Parte OPEN: il primo probe avviene in background all'avvio.
+    private final CircuitBreaker circuitBreaker;
+    private volatile long lastSuccessfulConnection = 0;
+
+    // Prober in background con backoff esponenziale
+    private final ScheduledExecutorService prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "esp01-prober");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean probeScheduled = new AtomicBoolean(false);
+    private final long probeInitialDelayMs;
+    private final long probeMaxDelayMs;
+    private volatile long probeDelayMs;
+
+    // Latenza per tipo di comando: statistiche per /api/esp01/status e timer Micrometer
+    private final CommandMetrics ledLatency;
+    private final CommandMetrics frameLatency;
+    private final CommandMetrics relayLatency;
+    private final CommandMetrics probeLatency;
     
-    public ESP01Service() {
-        this.restTemplate = new RestTemplate();
+    /**
+     * In simulazione con simulation.esp01.enabled=true il target è il
+     * server ESP-01S simulato locale invece di esp01.base-url
+     */
+    @Autowired
+    public ESP01Service(@Value("${esp01.base-url:http://192.168.1.101}") String baseUrl,
+                        @Value("${esp01.connect-timeout-ms:2000}") int connectTimeoutMs,
+                        @Value("${esp01.read-timeout-ms:2000}") int readTimeoutMs,
+                        @Value("${esp01.breaker.failure-threshold:3}") int failureThreshold,
+                        @Value("${esp01.breaker.probe-initial-ms:1000}") long probeInitialDelayMs,
+                        @Value("${esp01.breaker.probe-max-ms:60000}") long probeMaxDelayMs,
+                        @Value("${esp01.frame-endpoint.enabled:true}") boolean frameEndpointEnabled,
+                        @Value("${esp01.led-fallback.interval-ms:250}") long ledFallbackIntervalMs,
+                        MeterRegistry meterRegistry,
+                        Optional<SimulatedEsp01Server> simulator) {
+        this(simulator.map(SimulatedEsp01Server::getBaseUrl).orElse(baseUrl), connectTimeoutMs, readTimeoutMs,
+                failureThreshold, probeInitialDelayMs, probeMaxDelayMs, meterRegistry);
+        this.frameEndpointSupported = frameEndpointEnabled;
+        this.ledFallbackIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ledFallbackIntervalMs));
+    }
+
+    public ESP01Service(String baseUrl,
+                        int connectTimeoutMs,
+                        int readTimeoutMs,
+                        int failureThreshold,
+                        long probeInitialDelayMs,
+                        long probeMaxDelayMs,
+                        MeterRegistry meterRegistry) {
+        this.esp01BaseUrl = baseUrl;
+        this.circuitBreaker = new CircuitBreaker("esp01", failureThreshold, CircuitBreaker.State.OPEN);
+        this.probeInitialDelayMs = probeInitialDelayMs;
+        this.probeMaxDelayMs = probeMaxDelayMs;
+        this.probeDelayMs = probeInitialDelayMs;
+        // Client JDK con pool di connessioni keep-alive: i comandi successivi
+        // riusano il socket già aperto invece di rifare l'handshake TCP.
+        // HTTP/1.1 esplicito: il web server dell'ESP-01S non gestisce l'upgrade h2c.
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        this.restTemplate = new RestTemplate(requestFactory);
         this.objectMapper = new ObjectMapper();
-        System.out.println("🌐 ESP-01S Service inizializzato - Target: " + ESP01_BASE_URL);
+
+        this.ledLatency = new CommandMetrics(meterRegistry, "led");
+        this.frameLatency = new CommandMetrics(meterRegistry, "frame");
+        this.relayLatency = new CommandMetrics(meterRegistry, "relay");
+        this.probeLatency = new CommandMetrics(meterRegistry, "probe");
+        // Un gauge per stato (1 = stato corrente): in Prometheus basta esp01_breaker_state{state="OPEN"} == 1
+        for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+            Gauge.builder("esp01.breaker.state", circuitBreaker, breaker -> breaker.getState() == state ? 1 : 0)
+                    .description("Stato del circuit breaker ESP-01S")
+                    .tag("state", state.name())
+                    .register(meterRegistry);
+        }
+        FunctionCounter.builder("esp01.breaker.transitions", circuitBreaker, CircuitBreaker::getTransitions)
+                .description("Cambi di stato del circuit breaker ESP-01S")
+                .register(meterRegistry);
+        log.info("🌐 ESP-01S Service inizializzato - Target: {} (connect {}ms, read {}ms)",
+                esp01BaseUrl, connectTimeoutMs, readTimeoutMs);
     }
     
+    @PostConstruct
+    public void startProber() {
+        scheduleProbe(0);
+    }
+
+    @PreDestroy
+    public void stopProber() {
+        prober.shutdownNow();
+    }
+
     /**
      * Test connessione con ESP-01S
      */
     public boolean testConnection() {
+        long start = System.nanoTime();
         try {
-            String url = ESP01_BASE_URL + "/";
+            String url = esp01BaseUrl + "/";
             ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
             
             if (response.getStatusCode().is2xxSuccessful()) {
-                esp01Available = true;
+                probeLatency.record(System.nanoTime() - start);
                 lastSuccessfulConnection = System.currentTimeMillis();
-                System.out.println("✅ ESP-01S connesso: " + response.getBody());
+                log.info("✅ ESP-01S connesso: {}", response.getBody());
                 return true;
             }
         } catch (RestClientException e) {
-            esp01Available = false;
-            System.out.println("❌ ESP-01S non disponibile: " + e.getMessage());
+            log.warn("❌ ESP-01S non disponibile: {}", e.getMessage());
         }
+        probeLatency.recordError(System.nanoTime() - start);
         return false;
     }
+
+    private void scheduleProbe(long delayMs) {
+        if (probeScheduled.compareAndSet(false, true)) {
+            try {
+                prober.schedule(this::probe, delayMs, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                probeScheduled.set(false); // prober chiuso in shutdown
+            }
+        }
+    }
+
+    private void probe() {
+        probeScheduled.set(false);
+        if (!circuitBreaker.tryHalfOpen()) {
+            return;
+        }
+        if (testConnection()) {
+            circuitBreaker.recordSuccess();
+            probeDelayMs = probeInitialDelayMs;
+        } else {
+            circuitBreaker.recordFailure();
+            long delay = probeDelayMs;
+            probeDelayMs = Math.min(probeMaxDelayMs, delay * 2);
+            scheduleProbe(delay);
+        }
+    }
+
+    private void onCommandSuccess() {
+        lastSuccessfulConnection = System.currentTimeMillis();
+        circuitBreaker.recordSuccess();
+    }
+
+    private void onCommandFailure() {
+        if (circuitBreaker.recordFailure()) {
+            probeDelayMs = probeInitialDelayMs;
+            scheduleProbe(probeDelayMs);
+        }
+    }
     
     /**
      * Controllo singolo LED WS2812B
@@ -78,11 +238,120 @@ public class ESP01Service {
             
             return sendLedCommand(payload);
         } catch (Exception e) {
-            System.err.println("❌ Errore controllo LED " + ledIndex + ": " + e.getMessage());
+            log.error("❌ Errore controllo LED {}: {}", ledIndex, e.getMessage());
             return false;
         }
     }
     
+    /**
+     * Frame completo LED Strip in un'unica richiesta
+     *
+     * Corpo application/octet-stream: R,G,B per ogni LED a partire dal LED 0
+     * (3 byte per LED, nessuna intestazione). Il firmware accende la strip
+     * e aggiorna tutti i LED ricevuti con un solo show().
+     * Se il firmware non espone /frame (404, o esp01.frame-endpoint.enabled=false)
+     * il frame viene consegnato con un comando /led per ogni LED cambiato,
+     * al massimo un frame ogni esp01.led-fallback.interval-ms: l'ESP-01S
+     * serve una richiesta alla volta e un effetto a 30 fps su 10 LED
+     * diventerebbe ~300 richieste/s.
+     */
+    public boolean setFrame(byte[] frame) {
+        if (!frameEndpointSupported) {
+            return setFrameByLed(frame);
+        }
+        long start = System.nanoTime();
+        try {
+            String url = esp01BaseUrl + FRAME_ENDPOINT;
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+            HttpEntity<byte[]> request = new HttpEntity<>(frame, headers);
+
+            ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
+
+            if (response.getStatusCode().is2xxSuccessful()) {
+                frameLatency.record(System.nanoTime() - start);
+                onCommandSuccess();
+                return true;
+            }
+        } catch (HttpClientErrorException.NotFound e) {
+            // L'ESP ha risposto: è il firmware a non conoscere /frame, non un guasto
+            frameEndpointSupported = false;
+            log.warn("⚠️ Firmware ESP-01S senza {}: frame inviati come comandi {} per LED", FRAME_ENDPOINT, LED_ENDPOINT);
+            return setFrameByLed(frame);
+        } catch (RestClientException e) {
+            log.error("❌ Errore invio frame LED: {}", e.getMessage());
+        }
+        frameLatency.recordError(System.nanoTime() - start);
+        onCommandFailure();
+        return false;
+    }
+
+    // Frame via /led con limite di frequenza: dentro l'intervallo il frame diventa
+    // il pendente (sostituendo il precedente) e parte a fine intervallo dal prober
+    private boolean setFrameByLed(byte[] frame) {
+        ledFallbackLock.lock();
+        try {
+            long wait = lastLedFrameNanos + ledFallbackIntervalNanos - System.nanoTime();
+            if (ledFrameSent && wait > 0) {
+                boolean scheduled = pendingLedFrame != null;
+                pendingLedFrame = frame.clone();
+                if (!scheduled) {
+                    try {
+                        prober.schedule(this::flushPendingLedFrame, wait, TimeUnit.NANOSECONDS);
+                    } catch (RejectedExecutionException e) {
+                        pendingLedFrame = null; // servizio in chiusura
+                        return false;
+                    }
+                }
+                return true;
+            }
+            pendingLedFrame = null;
+            return sendFrameByLed(frame);
+        } finally {
+            ledFallbackLock.unlock();
+        }
+    }
+
+    private void flushPendingLedFrame() {
+        ledFallbackLock.lock();
+        try {
+            byte[] frame = pendingLedFrame;
+            pendingLedFrame = null;
+            if (frame != null) {
+                sendFrameByLed(frame);
+            }
+        } finally {
+            ledFallbackLock.unlock();
+        }
+    }
+
+    // Frame come sequenza di /led, solo per i LED diversi dall'ultimo frame consegnato (con ledFallbackLock)
+    private boolean sendFrameByLed(byte[] frame) {
+        byte[] previous = lastLedFrame != null && lastLedFrame.length == frame.length ? lastLedFrame : null;
+        try {
+            for (int i = 0, offset = 0; offset + 2 < frame.length; i++, offset += 3) {
+                if (previous != null && previous[offset] == frame[offset]
+                        && previous[offset + 1] == frame[offset + 1] && previous[offset + 2] == frame[offset + 2]) {
+                    continue;
+                }
+                if (!setLedColor(i, frame[offset] & 0xFF, frame[offset + 1] & 0xFF, frame[offset + 2] & 0xFF)) {
+                    // Stato della strip incerto: il prossimo frame va rinviato per intero
+                    lastLedFrame = null;
+                    return false;
+                }
+            }
+            lastLedFrame = frame.clone();
+            return true;
+        } finally {
+            lastLedFrameNanos = System.nanoTime();
+            ledFrameSent = true;
+        }
+    }
+
+    public boolean isFrameEndpointSupported() {
+        return frameEndpointSupported;
+    }
+    
     /**
      * Accensione/Spegnimento completo LED Strip
      */
@@ -92,12 +361,12 @@ public class ESP01Service {
             payload.put("power", isOn);
             
             boolean success = sendLedCommand(payload);
-            if (success) {
-                System.out.println("🌈 LED Strip: " + (isOn ? "ACCESA" : "SPENTA"));
+            if (success && log.isDebugEnabled()) {
+                log.debug("🌈 LED Strip: {}", isOn ? "ACCESA" : "SPENTA");
             }
             return success;
         } catch (Exception e) {
-            System.err.println("❌ Errore controllo power LED Strip: " + e.getMessage());
+            log.error("❌ Errore controllo power LED Strip: {}", e.getMessage());
             return false;
         }
     }
@@ -114,12 +383,12 @@ public class ESP01Service {
             payload.put("brightness", brightness);
             
             boolean success = sendLedCommand(payload);
-            if (success) {
-                System.out.println("🔆 Brightness LED Strip: " + brightness);
+            if (success && log.isDebugEnabled()) {
+                log.debug("🔆 Brightness LED Strip: {}", brightness);
             }
             return success;
         } catch (Exception e) {
-            System.err.println("❌ Errore controllo brightness: " + e.getMessage());
+            log.error("❌ Errore controllo brightness: {}", e.getMessage());
             return false;
         }
     }
@@ -135,12 +404,12 @@ public class ESP01Service {
             payload.put("power", true); // Accendi per mostrare effetto
             
             boolean success = sendLedCommand(payload);
-            if (success) {
-                System.out.println("✨ Effetto LED Strip: " + effect + " (speed: " + speed + ")");
+            if (success && log.isDebugEnabled()) {
+                log.debug("✨ Effetto LED Strip: {} (speed: {})", effect, speed);
             }
             return success;
         } catch (Exception e) {
-            System.err.println("❌ Errore controllo effetto: " + e.getMessage());
+            log.error("❌ Errore controllo effetto: {}", e.getMessage());
             return false;
         }
     }
@@ -149,11 +418,12 @@ public class ESP01Service {
      * Controllo relè ESP-01S
      */
     public boolean setRelayState(boolean isOn) {
+        long start = System.nanoTime();
         try {
             Map<String, Object> payload = new HashMap<>();
             payload.put("state", isOn);
             
-            String url = ESP01_BASE_URL + RELAY_ENDPOINT;
+            String url = esp01BaseUrl + RELAY_ENDPOINT;
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
             
@@ -163,15 +433,18 @@ public class ESP01Service {
             ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
             
             if (response.getStatusCode().is2xxSuccessful()) {
-                esp01Available = true;
-                lastSuccessfulConnection = System.currentTimeMillis();
-                System.out.println("🔌 Relè ESP-01S: " + (isOn ? "ON" : "OFF"));
+                relayLatency.record(System.nanoTime() - start);
+                onCommandSuccess();
+                if (log.isDebugEnabled()) {
+                    log.debug("🔌 Relè ESP-01S: {}", isOn ? "ON" : "OFF");
+                }
                 return true;
             }
-        } catch (RestClientException e) {
-            System.err.println("❌ Errore controllo relè ESP-01S: " + e.getMessage());
-            esp01Available = false;
+        } catch (RestClientException | JsonProcessingException e) {
+            log.error("❌ Errore controllo relè ESP-01S: {}", e.getMessage());
         }
+        relayLatency.recordError(System.nanoTime() - start);
+        onCommandFailure();
         return false;
     }
     
@@ -179,8 +452,9 @@ public class ESP01Service {
      * Invio comando LED generico
      */
     private boolean sendLedCommand(Map<String, Object> payload) {
+        long start = System.nanoTime();
         try {
-            String url = ESP01_BASE_URL + LED_ENDPOINT;
+            String url = esp01BaseUrl + LED_ENDPOINT;
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
             
@@ -190,15 +464,18 @@ public class ESP01Service {
             ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
             
             if (response.getStatusCode().is2xxSuccessful()) {
-                esp01Available = true;
-                lastSuccessfulConnection = System.currentTimeMillis();
-                System.out.println("📡 Comando LED inviato: " + jsonPayload);
+                ledLatency.record(System.nanoTime() - start);
+                onCommandSuccess();
+                if (log.isDebugEnabled()) {
+                    log.debug("📡 Comando LED inviato: {}", jsonPayload);
+                }
                 return true;
             }
-        } catch (RestClientException e) {
-            System.err.println("❌ Errore invio comando LED: " + e.getMessage());
-            esp01Available = false;
+        } catch (RestClientException | JsonProcessingException e) {
+            log.error("❌ Errore invio comando LED: {}", e.getMessage());
         }
+        ledLatency.recordError(System.nanoTime() - start);
+        onCommandFailure();
         return false;
     }
     
@@ -207,22 +484,62 @@ public class ESP01Service {
      */
     public Map<String, Object> getStatus() {
         Map<String, Object> status = new HashMap<>();
-        status.put("available", esp01Available);
-        status.put("url", ESP01_BASE_URL);
+        status.put("available", circuitBreaker.allowRequest());
+        status.put("url", esp01BaseUrl);
         status.put("lastConnection", lastSuccessfulConnection);
-        
-        // Test connessione live se non disponibile
-        if (!esp01Available) {
-            status.put("available", testConnection());
-        }
+        status.put("frameEndpoint", frameEndpointSupported);
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("led", ledLatency.stats.toMap());
+        latency.put("frame", frameLatency.stats.toMap());
+        latency.put("relay", relayLatency.stats.toMap());
+        latency.put("probe", probeLatency.stats.toMap());
+        status.put("latency", latency);
+
+        // Stato del circuit breaker (nessun probe sincrono: lo fa il prober)
+        Map<String, Object> breaker = circuitBreaker.toMap();
+        breaker.put("nextProbeDelayMs", probeDelayMs);
+        status.put("circuitBreaker", breaker);
         
         return status;
     }
     
     /**
-     * Utility per controllo disponibilità
+     * Utility per controllo disponibilità: sola lettura dello stato del breaker
      */
     public boolean isAvailable() {
-        return esp01Available || testConnection();
+        return circuitBreaker.allowRequest();
+    }
+    /**
+     * Latenza di un tipo di comando: LatencyStats per lo status JSON,
+     * timer esp01.command (tag command, outcome) per Prometheus
+     */
+    private static final class CommandMetrics {
+        final LatencyStats stats = new LatencyStats();
+        private final Timer success;
+        private final Timer error;
+
+        CommandMetrics(MeterRegistry registry, String command) {
+            this.success = timer(registry, command, "success");
+            this.error = timer(registry, command, "error");
+        }
+
+        private static Timer timer(MeterRegistry registry, String command, String outcome) {
+            return Timer.builder("esp01.command")
+                    .description("Latenza dei comandi HTTP verso l'ESP-01S")
+                    .tag("command", command)
+                    .tag("outcome", outcome)
+                    .register(registry);
+        }
+
+        void record(long nanos) {
+            stats.record(nanos);
+            success.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        void recordError(long nanos) {
+            stats.recordError(nanos);
+            error.record(nanos, TimeUnit.NANOSECONDS);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.hardware.LedFrameSink;
+
+/**
+ * LedFrameSink verso l'ESP-01S (un frame = una POST /frame)
+ *
+ * Se il circuit breaker è aperto restituisce false senza fare I/O,
+ * così il chiamante può passare subito al fallback GPIO.
+ */
+public class Esp01FrameSink implements LedFrameSink {
+
+    private final ESP01Service esp01Service;
+
+    public Esp01FrameSink(ESP01Service esp01Service) {
+        this.esp01Service = esp01Service;
+    }
+
+    @Override
+    public String getName() {
+        return "esp01";
+    }
+
+    @Override
+    public boolean pushFrame(byte[] frame) {
+        return esp01Service.isAvailable() && esp01Service.setFrame(frame);
+    }
+
+    @Override
+    public boolean setPower(boolean isOn) {
+        return esp01Service.isAvailable() && esp01Service.setLedStripPower(isOn);
+    }
+}
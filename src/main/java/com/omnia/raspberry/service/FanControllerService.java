@@ -0,0 +1,208 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.model.SystemInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Controllo termico della ventola in anello chiuso
+ *
+ * A ogni tick legge la temperatura dall'ultimo snapshot del sampler e
+ * calcola il duty cycle da una curva a punti (temperatura:duty) con
+ * interpolazione lineare. L'isteresi evita oscillazioni attorno a un
+ * punto della curva: la ventola rallenta solo quando la temperatura è
+ * scesa di fan.control.hysteresis-c sotto la soglia che l'ha accelerata.
+ * Il duty cambia al massimo di fan.control.max-step-percent per tick,
+ * tranne oltre l'ultimo punto della curva dove si va subito al massimo.
+ *
+ * In modalità manuale (POST /api/fan/speed) il controllo è sospeso
+ * finché non si torna in automatico.
+ */
+@Service
+public class FanControllerService {
+
+    private static final Logger log = LoggerFactory.getLogger(FanControllerService.class);
+
+    @Autowired
+    private GpioService gpioService;
+
+    @Autowired
+    private SystemMonitorService systemMonitorService;
+
+    @Value("${fan.control.mode:auto}")
+    private String initialMode;
+
+    // Punti temperatura(°C):duty(%) in ordine crescente di temperatura
+    @Value("${fan.control.curve:45:0,50:30,60:60,70:100}")
+    private String curveSpec;
+
+    @Value("${fan.control.hysteresis-c:3.0}")
+    private double hysteresis;
+
+    @Value("${fan.control.max-step-percent:10}")
+    private int maxStep;
+
+    private double[] curveTemps;
+    private int[] curveDuties;
+
+    // Lock esplicito: le scritture PWM (sysfs/gpioset) non devono bloccare un carrier dei virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile boolean autoMode;
+    private volatile double lastTemperature = Double.NaN;
+    private volatile int targetDuty = 0;
+    private volatile int appliedDuty = 0;
+
+    @PostConstruct
+    public void initialize() {
+        parseCurve(curveSpec);
+        autoMode = !"manual".equalsIgnoreCase(initialMode);
+        log.info("🌡️ Controllo ventola {} - curva {}, isteresi {}°C, passo max {}%",
+                autoMode ? "automatico" : "manuale", curveSpec, hysteresis, maxStep);
+    }
+
+    private void parseCurve(String spec) {
+        List<double[]> points = new ArrayList<>();
+        for (String point : spec.split(",")) {
+            String[] parts = point.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Punto curva ventola non valido: " + point);
+            }
+            double temp = Double.parseDouble(parts[0].trim());
+            int duty = Integer.parseInt(parts[1].trim());
+            if (duty < 0 || duty > 100) {
+                throw new IllegalArgumentException("Duty curva ventola fuori range 0-100: " + point);
+            }
+            if (!points.isEmpty() && temp <= points.get(points.size() - 1)[0]) {
+                throw new IllegalArgumentException("Temperature della curva ventola non crescenti: " + spec);
+            }
+            points.add(new double[]{temp, duty});
+        }
+        if (points.isEmpty()) {
+            throw new IllegalArgumentException("Curva ventola vuota");
+        }
+        curveTemps = new double[points.size()];
+        curveDuties = new int[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            curveTemps[i] = points.get(i)[0];
+            curveDuties[i] = (int) points.get(i)[1];
+        }
+    }
+
+    // Duty della curva alla temperatura data (interpolazione lineare tra i punti)
+    private int curveDuty(double temperature) {
+        if (temperature <= curveTemps[0]) {
+            return curveDuties[0];
+        }
+        int last = curveTemps.length - 1;
+        if (temperature >= curveTemps[last]) {
+            return curveDuties[last];
+        }
+        int i = 1;
+        while (temperature > curveTemps[i]) {
+            i++;
+        }
+        double fraction = (temperature - curveTemps[i - 1]) / (curveTemps[i] - curveTemps[i - 1]);
+        return (int) Math.round(curveDuties[i - 1] + fraction * (curveDuties[i] - curveDuties[i - 1]));
+    }
+
+    @Scheduled(fixedRateString = "${fan.control.interval-ms:2000}", initialDelayString = "${fan.control.interval-ms:2000}")
+    public void control() {
+        if (!autoMode || !systemMonitorService.isTemperatureAvailable()) {
+            return;
+        }
+        SystemInfo info = systemMonitorService.getSystemInfo();
+        double temperature = info.getCpuTemperature();
+        lastTemperature = temperature;
+
+        int current = appliedDuty;
+        int next;
+        if (temperature >= curveTemps[curveTemps.length - 1]) {
+            // Oltre l'ultimo punto: niente rampa, si evita il throttling
+            next = curveDuties[curveDuties.length - 1];
+            targetDuty = next;
+        } else {
+            int up = curveDuty(temperature);
+            int down = curveDuty(temperature + hysteresis);
+            int target = up > current ? up : (down < current ? down : current);
+            targetDuty = target;
+            int delta = Math.max(-maxStep, Math.min(maxStep, target - current));
+            next = current + delta;
+        }
+        if (next != current) {
+            applyDuty(next);
+        }
+    }
+
+    private void applyDuty(int duty) {
+        lock.lock();
+        try {
+            if (!autoMode) {
+                return;
+            }
+            gpioService.setFanSpeed(duty);
+            appliedDuty = duty;
+        } catch (Exception e) {
+            log.error("❌ Controllo ventola: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Impostazione manuale: sospende il controllo automatico solo se la scrittura è riuscita
+    // (sotto lock: un tick automatico non può interporsi tra scrittura e cambio modalità)
+    public void setManualSpeed(int percentage) {
+        lock.lock();
+        try {
+            gpioService.setFanSpeed(percentage);
+            autoMode = false;
+            appliedDuty = percentage;
+            targetDuty = percentage;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void setMode(String mode) {
+        lock.lock();
+        try {
+            if ("auto".equalsIgnoreCase(mode)) {
+                autoMode = true;
+                appliedDuty = gpioService.getFanDutyCycle();
+            } else if ("manual".equalsIgnoreCase(mode)) {
+                autoMode = false;
+            } else {
+                throw new IllegalArgumentException("Modalità ventola non valida: " + mode + " (auto|manual)");
+            }
+        } finally {
+            lock.unlock();
+        }
+        log.info("🌡️ Controllo ventola {}", autoMode ? "automatico" : "manuale");
+    }
+
+    public String getMode() {
+        return autoMode ? "auto" : "manual";
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("mode", getMode());
+        status.put("temperature", Double.isNaN(lastTemperature) ? null : lastTemperature);
+        status.put("targetDutyCycle", targetDuty);
+        status.put("appliedDutyCycle", appliedDuty);
+        status.put("curve", curveSpec);
+        status.put("hysteresisC", hysteresis);
+        status.put("maxStepPercent", maxStep);
+        return status;
+    }
+}
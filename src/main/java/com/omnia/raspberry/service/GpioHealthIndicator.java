@@ -0,0 +1,26 @@
+package com.omnia.raspberry.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Health "gpio": OUT_OF_SERVICE finché il claim delle linee è in corso
+ *
+ * Incluso nel gruppo readiness (/actuator/health/readiness): deploy e
+ * healthcheck attendono lo stato UP invece di uno sleep fisso, mentre la
+ * liveness resta UP già all'apertura della porta.
+ */
+@Component
+public class GpioHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private GpioService gpioService;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = gpioService.isReady() ? Health.up() : Health.outOfService();
+        return builder.withDetails(gpioService.getInitStatus()).build();
+    }
+}
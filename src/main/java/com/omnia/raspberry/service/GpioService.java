@@ -1,31 +1,121 @@
 package com.omnia.raspberry.service;
 
+import com.omnia.raspberry.effect.BreatheEffect;
+import com.omnia.raspberry.effect.RainbowEffect;
+import com.omnia.raspberry.effect.StrobeEffect;
+import com.omnia.raspberry.hardware.GpioLineDriver;
+import com.omnia.raspberry.hardware.LedFrameSink;
+import com.omnia.raspberry.hardware.PwmDriver;
+import com.omnia.raspberry.model.DeviceEvent;
+import com.omnia.raspberry.model.GpioBatchResult;
 import com.omnia.raspberry.model.GpioPin;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class GpioService {
 
+    private static final Logger log = LoggerFactory.getLogger(GpioService.class);
+
     @Autowired
     private ESP01Service esp01Service;
 
-    private Map<Integer, GpioPin> gpioPins = new HashMap<>();
+    @Autowired
+    private GpioLineDriver gpioLineDriver;
+
+    @Autowired
+    private DeviceEventBus eventBus;
+
+    @Autowired
+    private LedFrameSink ledFrameSink;
+
+    @Autowired
+    private PwmDriver fanPwmDriver;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Snapshot immutabili per BCM: letture senza lock, scritture atomiche per pin
+    private final PinTable gpioPins = new PinTable();
+
+    // Claim delle linee in background su un pool limitato: la porta HTTP si apre
+    // subito e una richiesta su un pin non ancora pronto attende solo quel pin
+    @Value("${gpio.init.parallelism:4}")
+    private int initParallelism = 4;
+    @Value("${gpio.init.wait-timeout-ms:10000}")
+    private long initWaitTimeoutMs = 10000;
+    private final CompletableFuture<?>[] pinClaims = new CompletableFuture<?>[PinTable.SIZE];
+    private CompletableFuture<Void> pinsReady = CompletableFuture.completedFuture(null);
+    private ExecutorService pinInitPool;
+    private final AtomicInteger claimedPins = new AtomicInteger();
+    private final AtomicInteger failedPins = new AtomicInteger();
+    private volatile long initStartNanos;
+    private volatile long initElapsedMillis = -1;
+
+    // Latenza delle scritture hardware per pin (gpio.pin.write), registrata in initialize()
+    private final Timer[] pinWriteTimers = new Timer[PinTable.SIZE];
+    private final Timer[] pinWriteErrorTimers = new Timer[PinTable.SIZE];
+    private Timer batchWriteTimer;
+    private Timer batchWriteErrorTimer;
+    // Frame/spegnimenti LED Strip finiti sul GPIO perché l'ESP-01S non era disponibile
+    private Counter ledFrameFallbacks;
+    private Counter ledPowerFallbacks;
     
     // Configurazione GPIO Pins
     private static final int LED_PIN = 18;           // LED semplice
     private static final int WS2812B_PIN = 18;      // LED Strip WS2812B (Hardware PWM)
     private static final int FAN_PWM_PIN = 12;      // Ventola PWM
     
-    // Arrays per memorizzare i colori dei LED WS2812B
-    private int[] ledRed = new int[10];
-    private int[] ledGreen = new int[10]; 
-    private int[] ledBlue = new int[10];
+    // Arrays per memorizzare i colori dei LED WS2812B (dimensionati su ledstrip.length)
+    @Value("${ledstrip.length:10}")
+    private int ledCount = 10;
+    private int[] ledRed;
+    private int[] ledGreen;
+    private int[] ledBlue;
     private boolean stripPower = false;
+
+    // Stato del loop di flush LED Strip (protetto da ledLock)
+    @Value("${ledstrip.flush-hz:60}")
+    private int flushHz = 60;
+    private final Object ledLock = new Object();
+    private boolean ledFrameDirty = false;
+    private boolean ledPowerDirty = false;
+    private byte[] flushFrame;              // buffer riusato a ogni tick
+    private ScheduledExecutorService ledFlusher;
+
+    // Motore effetti: quando è attivo possiede la strip e il flush dei frame statici è sospeso
+    @Value("${ledstrip.effect-fps:30}")
+    private int effectFps = 30;
+    private LedEffectEngine effectEngine;
+
+    // Stadio colore (luminosità, gamma, dithering) su ogni frame in uscita
+    @Value("${ledstrip.gamma.red:2.2}")
+    private double gammaRed = 2.2;
+    @Value("${ledstrip.gamma.green:2.2}")
+    private double gammaGreen = 2.2;
+    @Value("${ledstrip.gamma.blue:2.2}")
+    private double gammaBlue = 2.2;
+    @Value("${ledstrip.dithering:false}")
+    private boolean dithering = false;
+    private LedColorPipeline colorPipeline;
     private static final int RELAY_1_PIN = 16;      // Relè 1
     private static final int RELAY_2_PIN = 20;      // Relè 2
     private static final int PIR_SENSOR_PIN = 21;   // Sensore movimento
@@ -34,11 +124,23 @@ public class GpioService {
 
     @PostConstruct
     public void initialize() {
+        ledRed = new int[ledCount];
+        ledGreen = new int[ledCount];
+        ledBlue = new int[ledCount];
+        flushFrame = new byte[ledCount * 3];
+        colorPipeline = new LedColorPipeline(ledFrameSink, ledCount, gammaRed, gammaGreen, gammaBlue, dithering);
+        effectEngine = new LedEffectEngine(ledCount, effectFps, colorPipeline, this::onEffectSinkDown);
+        ledFlusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledstrip-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ledFlusher.scheduleAtFixedRate(this::flushLedStrip, 0, 1_000_000L / Math.max(1, flushHz), TimeUnit.MICROSECONDS);
         try {
             initializeGpioPins();
-            System.out.println("🚀 GPIO Service Professional inizializzato con " + gpioPins.size() + " pin configurati");
+            log.info("🚀 GPIO Service Professional inizializzato con {} pin configurati", gpioPins.size());
         } catch (Exception e) {
-            System.err.println("❌ Errore nell'inizializzazione GPIO: " + e.getMessage());
+            log.error("❌ Errore nell'inizializzazione GPIO: {}", e.getMessage());
         }
     }
 
@@ -124,7 +226,7 @@ public class GpioService {
                 case 19:
                     pinName = "🌈 LED Strip WS2812B";
                     pinType = "ADDRESSABLE";
-                    description = "Striscia LED RGB indirizzabile (10 LED)";
+                    description = "Striscia LED RGB indirizzabile (" + ledCount + " LED)";
                     break;
                 case 20:
                     pinName = "🔌 Relè #2";
@@ -141,57 +243,228 @@ public class GpioService {
                     break;
             }
             
-            gpioPins.put(gpioNum, new GpioPin(gpioNum, pinName, pinType, description));
-        }
-
-        // Inizializza tutti i pin GPIO
-        for (GpioPin pin : gpioPins.values()) {
-            String type = pin.getType();
-            if (!type.equals("INPUT")) {
-                try {
-                    executeCommand("gpioset --mode=exit gpiochip0 " + pin.getPinNumber() + "=0");
-                    pin.setState(false);
-                    System.out.println("✅ Pin " + pin.getPinNumber() + " (" + pin.getName() + ") inizializzato");
-                } catch (Exception e) {
-                    pin.setEnabled(false);
-                    System.err.println("⚠️ Pin " + pin.getPinNumber() + " non disponibile: " + e.getMessage());
-                }
-            } else {
-                // Pin di input - abilitato ma non controllabile in output
-                System.out.println("📌 Pin " + pin.getPinNumber() + " (" + pin.getName() + ") - INPUT");
+            gpioPins.put(new GpioPin(gpioNum, pinName, pinType, description));
+        }
+
+        registerMeters();
+        startPinClaims();
+    }
+
+    /**
+     * Reclama le linee in parallelo (le linee restano aperte fino al cleanup)
+     *
+     * Con gpioset ogni claim è un fork da decine di ms: in serie i 26 pin
+     * tenevano chiusa la porta HTTP per secondi. Il pool è limitato da
+     * gpio.init.parallelism; lo stato è esposto da /actuator/health/readiness.
+     */
+    private void startPinClaims() {
+        initStartNanos = System.nanoTime();
+        AtomicInteger threadId = new AtomicInteger();
+        pinInitPool = Executors.newFixedThreadPool(Math.max(1, initParallelism), runnable -> {
+            Thread thread = new Thread(runnable, "gpio-init-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<CompletableFuture<?>> claims = new ArrayList<>();
+        for (GpioPin pin : gpioPins.snapshot()) {
+            if (pin.getPinNumber() == FAN_PWM_PIN && !fanPwmDriver.requiresGpioLine()) {
+                // Linea assegnata alla periferica PWM: non va riconfigurata come GPIO
+                log.info("🌪️ Pin {} ({}) - PWM {}", FAN_PWM_PIN, pin.getName(), fanPwmDriver.getName());
+                continue;
             }
+            CompletableFuture<Void> claim = CompletableFuture.runAsync(() -> claimPin(pin), pinInitPool);
+            pinClaims[pin.getPinNumber()] = claim;
+            claims.add(claim);
+        }
+        pinsReady = CompletableFuture.allOf(claims.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((ignored, error) -> {
+                    long elapsedNanos = System.nanoTime() - initStartNanos;
+                    initElapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+                    Timer.builder("gpio.init")
+                            .description("Durata del claim di tutte le linee GPIO all'avvio")
+                            .tag("driver", gpioLineDriver.getName())
+                            .register(meterRegistry)
+                            .record(elapsedNanos, TimeUnit.NANOSECONDS);
+                    pinInitPool.shutdown();
+                    log.info("🚀 GPIO pronti in {}ms: {} linee reclamate, {} non disponibili (driver: {}, {} thread)",
+                            initElapsedMillis, claimedPins.get(), failedPins.get(), gpioLineDriver.getName(),
+                            Math.max(1, initParallelism));
+                });
+    }
+
+    private void claimPin(GpioPin pin) {
+        if (!pin.getType().equals("INPUT")) {
+            try {
+                gpioLineDriver.claimOutput(pin.getPinNumber(), false);
+                claimedPins.incrementAndGet();
+                log.debug("✅ Pin {} ({}) inizializzato", pin.getPinNumber(), pin.getName());
+            } catch (Exception e) {
+                failedPins.incrementAndGet();
+                gpioPins.update(pin.getPinNumber(), p -> p.withEnabled(false));
+                log.warn("⚠️ Pin {} non disponibile: {}", pin.getPinNumber(), e.getMessage());
+            }
+        } else {
+            // Pin di input - abilitato ma non controllabile in output
+            try {
+                gpioLineDriver.claimInput(pin.getPinNumber());
+                claimedPins.incrementAndGet();
+            } catch (Exception e) {
+                failedPins.incrementAndGet();
+                log.warn("⚠️ Pin input {} non reclamabile: {}", pin.getPinNumber(), e.getMessage());
+            }
+            log.debug("📌 Pin {} ({}) - INPUT", pin.getPinNumber(), pin.getName());
+        }
+    }
+
+    /**
+     * Completato quando tutte le linee GPIO sono state reclamate (o scartate)
+     */
+    public CompletableFuture<Void> whenPinsReady() {
+        return pinsReady;
+    }
+
+    public boolean isReady() {
+        return pinsReady.isDone();
+    }
+
+    // Stato dell'inizializzazione per l'health check di readiness
+    public Map<String, Object> getInitStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        int pending = 0;
+        for (CompletableFuture<?> claim : pinClaims) {
+            if (claim != null && !claim.isDone()) {
+                pending++;
+            }
+        }
+        status.put("ready", isReady());
+        status.put("driver", gpioLineDriver.getName());
+        status.put("parallelism", Math.max(1, initParallelism));
+        status.put("claimedPins", claimedPins.get());
+        status.put("failedPins", failedPins.get());
+        status.put("pendingPins", pending);
+        long elapsed = initElapsedMillis;
+        status.put("initMs", elapsed >= 0 ? elapsed : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - initStartNanos));
+        return status;
+    }
+
+    // Attende il claim della linea se l'inizializzazione è ancora in corso
+    private void awaitPin(int pinNumber) throws IOException {
+        CompletableFuture<?> claim = pinClaims[pinNumber];
+        if (claim == null || claim.isDone()) {
+            return;
+        }
+        try {
+            claim.get(initWaitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IOException("Pin " + pinNumber + " non ancora inizializzato dopo " + initWaitTimeoutMs + "ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Attesa inizializzazione pin " + pinNumber + " interrotta");
+        } catch (ExecutionException e) {
+            throw new IOException("Inizializzazione pin " + pinNumber + " fallita", e.getCause());
+        }
+        if (!gpioPins.get(pinNumber).isEnabled()) {
+            throw new IOException("Pin " + pinNumber + " non disponibile");
+        }
+    }
+
+    private void registerMeters() {
+        for (GpioPin pin : gpioPins.snapshot()) {
+            if (!pin.getType().equals("INPUT")) {
+                int line = pin.getPinNumber();
+                pinWriteTimers[line] = pinWriteTimer(line, "success");
+                pinWriteErrorTimers[line] = pinWriteTimer(line, "error");
+            }
+        }
+        batchWriteTimer = batchWriteTimer("success");
+        batchWriteErrorTimer = batchWriteTimer("error");
+        ledFrameFallbacks = ledFallbackCounter("frame");
+        ledPowerFallbacks = ledFallbackCounter("power");
+    }
+
+    private Timer pinWriteTimer(int line, String outcome) {
+        boolean pwm = line == FAN_PWM_PIN && !fanPwmDriver.requiresGpioLine();
+        return Timer.builder("gpio.pin.write")
+                .description("Latenza della scrittura hardware su un pin di output")
+                .tag("pin", String.valueOf(line))
+                .tag("driver", pwm ? fanPwmDriver.getName() : gpioLineDriver.getName())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private Timer batchWriteTimer(String outcome) {
+        return Timer.builder("gpio.batch.write")
+                .description("Latenza di una scrittura batch (un'operazione sul driver)")
+                .tag("driver", gpioLineDriver.getName())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private Counter ledFallbackCounter(String operation) {
+        return Counter.builder("ledstrip.fallback")
+                .description("Comandi LED Strip eseguiti sul GPIO per ESP-01S non disponibile")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    // Scrittura su una linea GPIO con misura della latenza
+    private void writePin(int pinNumber, boolean value) throws IOException {
+        awaitPin(pinNumber);
+        long start = System.nanoTime();
+        try {
+            gpioLineDriver.write(pinNumber, value);
+        } catch (IOException | RuntimeException e) {
+            recordPinWrite(pinWriteErrorTimers, pinNumber, start);
+            throw e;
+        }
+        recordPinWrite(pinWriteTimers, pinNumber, start);
+    }
+
+    private static void recordPinWrite(Timer[] timers, int pinNumber, long startNanos) {
+        Timer timer = timers[pinNumber];
+        if (timer != null) {
+            timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
         }
-        
-        System.out.println("🚀 GPIO Service inizializzato con " + gpioPins.size() + " pin controllabili");
     }
 
     @PreDestroy
     public void cleanup() {
+        effectEngine.shutdown();
+        ledFlusher.shutdownNow();
+        // Un claim ancora in corso non deve sovrapporsi al rilascio delle linee
+        if (pinInitPool != null) {
+            pinInitPool.shutdownNow();
+            try {
+                pinInitPool.awaitTermination(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            fanPwmDriver.setDutyCycle(0);
+        } catch (Exception e) {
+            log.warn("⚠️ Spegnimento ventola fallito: {}", e.getMessage());
+        }
         try {
-            // Spegni tutti i pin di output
-            for (GpioPin pin : gpioPins.values()) {
+            // Spegni tutti i pin di output e rilascia le linee
+            for (GpioPin pin : gpioPins.snapshot()) {
+                if (pin.getPinNumber() == FAN_PWM_PIN && !fanPwmDriver.requiresGpioLine()) {
+                    continue;
+                }
                 if (!pin.getType().equals("INPUT") && pin.isEnabled()) {
-                    executeCommand("gpioset --mode=exit gpiochip0 " + pin.getPinNumber() + "=0");
+                    gpioLineDriver.write(pin.getPinNumber(), false);
                 }
+                gpioLineDriver.release(pin.getPinNumber());
             }
-            System.out.println("🔄 GPIO Service terminato correttamente");
+            log.info("🔄 GPIO Service terminato correttamente");
         } catch (Exception e) {
-            System.err.println("❌ Errore nella chiusura GPIO: " + e.getMessage());
-        }
-    }
-
-    private void executeCommand(String command) throws IOException, InterruptedException {
-        Process process = Runtime.getRuntime().exec(command);
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            String error = new String(process.getErrorStream().readAllBytes());
-            throw new IOException("Command failed: " + command + " - " + error);
+            log.error("❌ Errore nella chiusura GPIO: {}", e.getMessage());
         }
     }
 
     // API per ottenere tutti i pin GPIO
     public List<GpioPin> getAllGpioPins() {
-        return new ArrayList<>(gpioPins.values());
+        return gpioPins.snapshot();
     }
 
     // API per ottenere un pin specifico
@@ -201,25 +474,154 @@ public class GpioService {
 
     // Toggle pin digitale
     public boolean toggleDigitalPin(int pinNumber) {
+        GpioPin pin = requireOutputPin(pinNumber);
+
+        // Lettura stato, scrittura hardware e aggiornamento modello atomici per pin
+        gpioPins.lock(pinNumber);
+        try {
+            boolean newState = !gpioPins.get(pinNumber).isState();
+            if (pinNumber == FAN_PWM_PIN) {
+                // La ventola passa sempre dal driver PWM: toggle = 0% / 100%
+                setFanSpeed(newState ? 100 : 0);
+                return newState;
+            }
+            writePin(pinNumber, newState);
+            gpioPins.update(pinNumber, p -> p.withState(newState));
+            eventBus.publish(DeviceEvent.pin(pinNumber, newState));
+            if (log.isDebugEnabled()) {
+                log.debug("🔄 Pin {} ({}): {}", pinNumber, pin.getName(), newState ? "ON" : "OFF");
+            }
+            return newState;
+        } catch (IOException e) {
+            log.error("❌ Errore toggle pin {}: {}", pinNumber, e.getMessage());
+            throw new RuntimeException("Errore nel controllo GPIO pin " + pinNumber, e);
+        } finally {
+            gpioPins.unlock(pinNumber);
+        }
+    }
+
+    /**
+     * Imposta uno stato definito su un pin di output (idempotente)
+     *
+     * Se lo stato in cache coincide già non tocca l'hardware né pubblica
+     * eventi. Restituisce true se il pin è stato effettivamente cambiato.
+     * Per la ventola si confronta il duty reale (ON = 100%, OFF = 0%).
+     */
+    public boolean setDigitalPin(int pinNumber, boolean value) {
+        return setDigitalPin(pinNumber, value, true);
+    }
+
+    // verbose=false per le scritture ad alta frequenza del sequencer
+    boolean setDigitalPin(int pinNumber, boolean value, boolean verbose) {
+        GpioPin pin = requireOutputPin(pinNumber);
+
+        gpioPins.lock(pinNumber);
+        try {
+            if (pinNumber == FAN_PWM_PIN) {
+                // ON = 100%: una ventola a duty parziale risulta "accesa" ma va comunque portata al massimo
+                int duty = value ? 100 : 0;
+                if (getFanDutyCycle() == duty) {
+                    return false;
+                }
+                setFanSpeed(duty);
+                return true;
+            }
+            if (gpioPins.get(pinNumber).isState() == value) {
+                return false;
+            }
+            writePin(pinNumber, value);
+            gpioPins.update(pinNumber, p -> p.withState(value));
+            eventBus.publish(DeviceEvent.pin(pinNumber, value));
+            if (verbose && log.isDebugEnabled()) {
+                log.debug("🎯 Pin {} ({}): {}", pinNumber, pin.getName(), value ? "ON" : "OFF");
+            }
+            return true;
+        } catch (IOException e) {
+            log.error("❌ Errore impostazione pin {}: {}", pinNumber, e.getMessage());
+            throw new RuntimeException("Errore nel controllo GPIO pin " + pinNumber, e);
+        } finally {
+            gpioPins.unlock(pinNumber);
+        }
+    }
+
+    private GpioPin requireOutputPin(int pinNumber) {
         GpioPin pin = gpioPins.get(pinNumber);
         if (pin == null || !pin.isEnabled()) {
             throw new RuntimeException("Pin " + pinNumber + " non valido o non disponibile");
         }
-        
         if (pin.getType().equals("INPUT")) {
             throw new RuntimeException("Pin " + pinNumber + " è configurato come INPUT - non controllabile");
         }
+        return pin;
+    }
+
+    // Scrittura batch di più pin con un'unica operazione sul driver
+    public GpioBatchResult applyBatch(Map<Integer, Boolean> states) {
+        GpioBatchResult result = new GpioBatchResult();
+        long highMask = 0L;
+        long lowMask = 0L;
+
+        for (Map.Entry<Integer, Boolean> entry : states.entrySet()) {
+            int pinNumber = entry.getKey();
+            GpioPin pin = gpioPins.get(pinNumber);
+            if (pin == null || !pin.isEnabled()) {
+                result.getErrors().put(pinNumber, "Pin non valido o non disponibile");
+            } else if (pin.getType().equals("INPUT")) {
+                result.getErrors().put(pinNumber, "Pin configurato come INPUT");
+            } else if (pin.getType().equals("PWM")) {
+                result.getErrors().put(pinNumber, "Pin PWM: usare /api/fan/speed");
+            } else if (entry.getValue() == null) {
+                result.getErrors().put(pinNumber, "Stato mancante");
+            } else if (entry.getValue()) {
+                highMask |= 1L << pinNumber;
+            } else {
+                lowMask |= 1L << pinNumber;
+            }
+        }
 
+        if ((highMask | lowMask) == 0) {
+            return result;
+        }
+
+        long touched = highMask | lowMask;
+        gpioPins.lockAll(touched);
         try {
-            boolean newState = !pin.isState();
-            executeCommand("gpioset --mode=exit gpiochip0 " + pinNumber + "=" + (newState ? "1" : "0"));
-            pin.setState(newState);
-            System.out.println("🔄 Pin " + pinNumber + " (" + pin.getName() + "): " + (newState ? "ON" : "OFF"));
-            return newState;
-        } catch (Exception e) {
-            System.err.println("❌ Errore toggle pin " + pinNumber + ": " + e.getMessage());
-            throw new RuntimeException("Errore nel controllo GPIO pin " + pinNumber, e);
+            long start = System.nanoTime();
+            try {
+                for (long mask = touched; mask != 0; mask &= mask - 1) {
+                    awaitPin(Long.numberOfTrailingZeros(mask));
+                }
+                gpioLineDriver.writeLines(highMask, lowMask);
+            } catch (Exception e) {
+                batchWriteErrorTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                log.error("❌ Errore batch GPIO: {}", e.getMessage());
+                throw new RuntimeException("Errore nella scrittura batch GPIO", e);
+            }
+            long elapsed = System.nanoTime() - start;
+            batchWriteTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            result.setLatencyMicros(elapsed / 1000);
+            result.setHardwareWrites(1);
+
+            for (Map.Entry<Integer, Boolean> entry : states.entrySet()) {
+                int pinNumber = entry.getKey();
+                boolean value = entry.getValue() != null && entry.getValue();
+                if ((touched & (1L << pinNumber)) != 0) {
+                    boolean changed = gpioPins.get(pinNumber).isState() != value;
+                    gpioPins.update(pinNumber, p -> p.withState(value));
+                    result.getApplied().put(pinNumber, value);
+                    // Pin già nello stato richiesto: scritto comunque, ma nessun evento duplicato
+                    if (changed) {
+                        eventBus.publish(DeviceEvent.pin(pinNumber, value));
+                    }
+                }
+            }
+        } finally {
+            gpioPins.unlockAll(touched);
         }
+        if (log.isDebugEnabled()) {
+            log.debug("🔀 Batch GPIO applicato su {} pin in {}µs", result.getApplied().size(), result.getLatencyMicros());
+        }
+        return result;
     }
 
     // Controllo PWM per ventola
@@ -233,107 +635,255 @@ public class GpioService {
             throw new RuntimeException("Ventola non disponibile");
         }
 
+        gpioPins.lock(FAN_PWM_PIN);
         try {
             // Converti percentuale in valore PWM (0-255)
             int pwmValue = (int) (percentage * 2.55);
-            fanPin.setPwmValue(pwmValue);
-            fanPin.setState(percentage > 0);
-            
-            // Per ora simula PWM con on/off, poi implementeremo PWM vero
-            if (percentage == 0) {
-                executeCommand("gpioset --mode=exit gpiochip0 " + FAN_PWM_PIN + "=0");
-            } else {
-                executeCommand("gpioset --mode=exit gpiochip0 " + FAN_PWM_PIN + "=1");
+            // Solo PWM software: la linea GPIO della ventola deve essere già reclamata
+            awaitPin(FAN_PWM_PIN);
+            long start = System.nanoTime();
+            try {
+                fanPwmDriver.setDutyCycle(percentage);
+            } catch (Exception e) {
+                recordPinWrite(pinWriteErrorTimers, FAN_PWM_PIN, start);
+                throw e;
             }
+            recordPinWrite(pinWriteTimers, FAN_PWM_PIN, start);
+            gpioPins.update(FAN_PWM_PIN, p -> p.withPwmValue(pwmValue).withState(percentage > 0));
+            eventBus.publish(DeviceEvent.pin(FAN_PWM_PIN, percentage > 0));
             
-            System.out.println("🌪️ Ventola impostata al " + percentage + "% (PWM: " + pwmValue + ")");
+            if (log.isDebugEnabled()) {
+                log.debug("🌪️ Ventola impostata al {}% (PWM: {}, {})", percentage, pwmValue, fanPwmDriver.getName());
+            }
         } catch (Exception e) {
             throw new RuntimeException("Errore controllo ventola", e);
+        } finally {
+            gpioPins.unlock(FAN_PWM_PIN);
         }
     }
 
-    // Controllo LED Strip WS2812B (da implementare)
+    // Duty cycle attualmente impostato sulla ventola (0-100%)
+    public int getFanDutyCycle() {
+        return (int) Math.round(fanPwmDriver.getDutyCycle());
+    }
+
+    // Stato PWM ventola: duty cycle richiesto/ottenuto, frequenza e jitter
+    public Map<String, Object> getFanStatus() {
+        GpioPin fanPin = gpioPins.get(FAN_PWM_PIN);
+        Map<String, Object> status = new LinkedHashMap<>(fanPwmDriver.getStats());
+        status.put("pin", FAN_PWM_PIN);
+        status.put("enabled", fanPin != null && fanPin.isEnabled());
+        status.put("state", fanPin != null && fanPin.isState());
+        return status;
+    }
+
+    // Controllo LED Strip WS2812B: aggiorna il frame in memoria, l'invio è del loop di flush
     public void setLedStripColor(int ledIndex, int red, int green, int blue) {
-        if (ledIndex < 0 || ledIndex >= 10) {
-            throw new RuntimeException("LED index deve essere tra 0-9");
+        if (ledIndex < 0 || ledIndex >= ledCount) {
+            throw new RuntimeException("LED index deve essere tra 0-" + (ledCount - 1));
         }
-        
-        // Prova prima ESP-01S se disponibile
-        if (esp01Service != null && esp01Service.isAvailable()) {
-            System.out.println("🌐 Usando ESP-01S per controllo LED " + ledIndex);
-            boolean success = esp01Service.setLedColor(ledIndex, red, green, blue);
-            if (success) {
-                // Memorizza il colore anche localmente
-                ledRed[ledIndex] = red;
-                ledGreen[ledIndex] = green;
-                ledBlue[ledIndex] = blue;
-                return;
-            } else {
-                System.out.println("⚠️ ESP-01S fallito, usando GPIO diretto");
-            }
-        }
-        
-        // Fallback a GPIO diretto se ESP-01S non disponibile
-        GpioPin stripPin = gpioPins.get(WS2812B_PIN);
-        if (stripPin == null || !stripPin.isEnabled()) {
-            throw new RuntimeException("LED Strip non disponibile (né ESP-01S né GPIO)");
+        if (!isColorComponent(red) || !isColorComponent(green) || !isColorComponent(blue)) {
+            throw new RuntimeException("Componenti RGB devono essere tra 0-255 (r=" + red + ", g=" + green + ", b=" + blue + ")");
         }
+        checkLedStripAvailable();
+        stopLedEffect();
 
-        try {
-            // Memorizza il colore
+        synchronized (ledLock) {
             ledRed[ledIndex] = red;
             ledGreen[ledIndex] = green;
             ledBlue[ledIndex] = blue;
-            
-            // Se la strip è accesa, applica il colore subito
-            if (stripPower) {
-                sendLedData(ledIndex, red, green, blue);
+            markLedFrameDirty();
+        }
+    }
+
+    private static boolean isColorComponent(int value) {
+        return value >= 0 && value <= 255;
+    }
+
+    // Frame completo LED Strip: RGB impacchettato (3 byte per LED, a partire dal LED 0)
+    public void setLedStripFrame(byte[] frame) {
+        if (frame == null || frame.length == 0 || frame.length % 3 != 0) {
+            throw new RuntimeException("Frame non valido: servono 3 byte (R,G,B) per LED");
+        }
+        int leds = frame.length / 3;
+        if (leds > ledCount) {
+            throw new RuntimeException("Frame troppo lungo: " + leds + " LED, la strip ne ha " + ledCount);
+        }
+        checkLedStripAvailable();
+        stopLedEffect();
+
+        synchronized (ledLock) {
+            for (int i = 0, offset = 0; i < leds; i++, offset += 3) {
+                ledRed[i] = frame[offset] & 0xFF;
+                ledGreen[i] = frame[offset + 1] & 0xFF;
+                ledBlue[i] = frame[offset + 2] & 0xFF;
             }
-            
-            System.out.println("🌈 LED Strip[" + ledIndex + "] -> R:" + red + " G:" + green + " B:" + blue);
-        } catch (Exception e) {
-            throw new RuntimeException("Errore colore LED Strip", e);
+            markLedFrameDirty();
         }
     }
 
+    public int getLedCount() {
+        return ledCount;
+    }
+
     // Controllo alimentazione LED Strip
     public void setLedStripPower(boolean isOn) {
-        // Prova prima ESP-01S se disponibile
-        if (esp01Service != null && esp01Service.isAvailable()) {
-            System.out.println("🌐 Usando ESP-01S per power LED Strip: " + (isOn ? "ON" : "OFF"));
-            boolean success = esp01Service.setLedStripPower(isOn);
-            if (success) {
+        checkLedStripAvailable();
+        if (!isOn) {
+            stopLedEffect();
+        }
+
+        synchronized (ledLock) {
+            if (stripPower != isOn) {
                 stripPower = isOn;
-                return;
-            } else {
-                System.out.println("⚠️ ESP-01S fallito, usando GPIO diretto");
+                ledPowerDirty = true;
             }
         }
-        
-        // Fallback a GPIO diretto
+        gpioPins.update(WS2812B_PIN, p -> p.withState(isOn));
+    }
+
+    // Ferma l'effetto attivo e fa ripartire il flush del frame statico
+    private void stopLedEffect() {
+        if (effectEngine.isRunning()) {
+            effectEngine.stop();
+            gpioPins.update(WS2812B_PIN, p -> p.withEffect("static"));
+            synchronized (ledLock) {
+                ledFrameDirty = true;
+            }
+        }
+    }
+
+    // L'effetto si è fermato con l'ESP-01S irraggiungibile: torna al frame statico,
+    // che il flush invia col fallback GPIO allineando lo stato del pin alla linea
+    private void onEffectSinkDown() {
+        if (effectEngine.isRunning()) {
+            return; // nel frattempo è partito un nuovo effetto
+        }
+        gpioPins.update(WS2812B_PIN, p -> p.withEffect("static"));
+        synchronized (ledLock) {
+            ledFrameDirty = true;
+        }
+    }
+
+    public Map<String, Object> getLedEffectStats() {
+        return effectEngine.getStats();
+    }
+
+    // Come sull'ESP-01S, impostare un colore accende la strip (chiamare con ledLock)
+    private void markLedFrameDirty() {
+        ledFrameDirty = true;
+        if (!stripPower) {
+            stripPower = true;
+            ledPowerDirty = true;
+        }
+    }
+
+    private void checkLedStripAvailable() {
+        if (esp01Service != null && esp01Service.isAvailable()) {
+            return;
+        }
         GpioPin stripPin = gpioPins.get(WS2812B_PIN);
         if (stripPin == null || !stripPin.isEnabled()) {
             throw new RuntimeException("LED Strip non disponibile (né ESP-01S né GPIO)");
         }
+    }
 
-        try {
-            stripPower = isOn;
-            if (isOn) {
-                // Accendi tutti i LED con il colore memorizzato
-                for (int i = 0; i < 10; i++) {
-                    sendLedData(i, ledRed[i], ledGreen[i], ledBlue[i]);
-                }
-                System.out.println("🌈 LED Strip accesa");
-            } else {
-                // Spegni tutti i LED
-                for (int i = 0; i < 10; i++) {
-                    sendLedData(i, 0, 0, 0);
+    /**
+     * Loop di flush a frequenza fissa (ledstrip.flush-hz), unico writer verso la strip
+     *
+     * Gli aggiornamenti arrivati tra due tick vengono fusi: al dispositivo
+     * arriva solo l'ultimo stato, al massimo un frame per tick.
+     */
+    private void flushLedStrip() {
+        boolean power;
+        boolean sendFrame;
+        boolean sendPowerOff;
+        synchronized (ledLock) {
+            if (!ledFrameDirty && !ledPowerDirty) {
+                return;
+            }
+            if (effectEngine.isRunning() && stripPower) {
+                return; // la strip è del motore effetti: il frame statico resta in attesa
+            }
+            power = stripPower;
+            sendFrame = power;                      // a strip spenta il frame resta solo in memoria
+            sendPowerOff = !power && ledPowerDirty;
+            ledFrameDirty = false;
+            ledPowerDirty = false;
+            if (sendFrame) {
+                for (int i = 0, offset = 0; i < ledCount; i++, offset += 3) {
+                    flushFrame[offset] = (byte) ledRed[i];
+                    flushFrame[offset + 1] = (byte) ledGreen[i];
+                    flushFrame[offset + 2] = (byte) ledBlue[i];
                 }
-                System.out.println("🌈 LED Strip spenta");
             }
-            stripPin.setState(isOn);
+        }
+
+        try {
+            if (sendFrame) {
+                pushLedFrame();
+            } else if (sendPowerOff) {
+                pushLedPowerOff();
+            }
         } catch (Exception e) {
-            throw new RuntimeException("Errore controllo LED Strip", e);
+            log.error("❌ Errore flush LED Strip: {}", e.getMessage());
+        }
+    }
+
+    private void pushLedFrame() throws IOException {
+        // Prova prima il sink (ESP-01S) passando dallo stadio colore: un solo messaggio per tutta la strip
+        if (colorPipeline.pushFrame(flushFrame)) {
+            return;
+        }
+        GpioPin stripPin = gpioPins.get(WS2812B_PIN);
+        if (stripPin != null && stripPin.isEnabled()) {
+            ledFrameFallbacks.increment();
+            writeStripFallback(flushFrame);
+        }
+    }
+
+    private void pushLedPowerOff() throws IOException {
+        if (colorPipeline.setPower(false)) {
+            return;
+        }
+        GpioPin stripPin = gpioPins.get(WS2812B_PIN);
+        if (stripPin != null && stripPin.isEnabled()) {
+            ledPowerFallbacks.increment();
+            writeStripFallback(null);
+            if (log.isDebugEnabled()) {
+                log.debug("🌈 LED Strip spenta");
+            }
+        }
+    }
+
+    /**
+     * Fallback GPIO della LED Strip (frame null = tutti spenti)
+     *
+     * Le scritture per LED passano dal lock del pin come toggle/set, e il
+     * modello viene allineato al livello rimasto sulla linea: un toggle
+     * concorrente non può interporsi a metà frame né lasciare uno stato
+     * riportato diverso da quello hardware.
+     */
+    private void writeStripFallback(byte[] frame) throws IOException {
+        if (ledCount == 0) {
+            return;
+        }
+        gpioPins.lock(WS2812B_PIN);
+        try {
+            boolean level = false;
+            for (int i = 0, offset = 0; i < ledCount; i++, offset += 3) {
+                level = frame == null
+                        ? sendLedData(i, 0, 0, 0)
+                        : sendLedData(i, frame[offset] & 0xFF, frame[offset + 1] & 0xFF, frame[offset + 2] & 0xFF);
+            }
+            boolean finalLevel = level;
+            GpioPin previous = gpioPins.get(WS2812B_PIN);
+            gpioPins.update(WS2812B_PIN, p -> p.withState(finalLevel));
+            if (previous.isState() != finalLevel) {
+                eventBus.publish(DeviceEvent.pin(WS2812B_PIN, finalLevel));
+            }
+        } finally {
+            gpioPins.unlock(WS2812B_PIN);
         }
     }
 
@@ -349,9 +899,16 @@ public class GpioService {
         }
 
         try {
-            // TODO: Implementare controllo luminosità WS2812B
-            System.out.println("🌈 LED Strip luminosità impostata a " + brightness);
-            stripPin.setBrightness(brightness);
+            // Scalatura lato server tramite LUT: niente repaint per LED.
+            // Il frame corrente viene rinviato al prossimo tick, l'effetto attivo la usa dal frame successivo.
+            colorPipeline.setBrightness(brightness);
+            synchronized (ledLock) {
+                ledFrameDirty = true;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("🌈 LED Strip luminosità impostata a {}", brightness);
+            }
+            gpioPins.update(WS2812B_PIN, p -> p.withBrightness(brightness));
         } catch (Exception e) {
             throw new RuntimeException("Errore controllo luminosità LED Strip", e);
         }
@@ -372,23 +929,34 @@ public class GpioService {
         }
 
         try {
-            // TODO: Implementare effetti WS2812B
             switch (effect.toLowerCase()) {
                 case "static":
-                    System.out.println("🌈 LED Strip - Effetto statico RGB(" + red + "," + green + "," + blue + ")");
+                    // Nessun rendering: colore fisso su tutta la strip tramite il flush
+                    stopLedEffect();
+                    synchronized (ledLock) {
+                        Arrays.fill(ledRed, red);
+                        Arrays.fill(ledGreen, green);
+                        Arrays.fill(ledBlue, blue);
+                        markLedFrameDirty();
+                    }
                     break;
                 case "breathe":
-                    System.out.println("🌈 LED Strip - Effetto respiro RGB(" + red + "," + green + "," + blue + ") velocità:" + speed);
+                    effectEngine.start(new BreatheEffect(red, green, blue, speed));
                     break;
                 case "rainbow":
-                    System.out.println("🌈 LED Strip - Effetto arcobaleno velocità:" + speed);
+                    effectEngine.start(new RainbowEffect(speed));
                     break;
                 case "strobe":
-                    System.out.println("🌈 LED Strip - Effetto strobo RGB(" + red + "," + green + "," + blue + ") velocità:" + speed);
+                    effectEngine.start(new StrobeEffect(red, green, blue, speed));
                     break;
             }
-            stripPin.setEffect(effect);
-            stripPin.setState(true);
+            if (!effect.equalsIgnoreCase("static")) {
+                synchronized (ledLock) {
+                    stripPower = true;
+                }
+            }
+            String effectName = effect.toLowerCase();
+            gpioPins.update(WS2812B_PIN, p -> p.withEffect(effectName).withState(true));
         } catch (Exception e) {
             throw new RuntimeException("Errore impostazione effetto LED Strip", e);
         }
@@ -397,31 +965,34 @@ public class GpioService {
     // Lettura sensore PIR
     public boolean readPirSensor() {
         try {
-            // TODO: Implementare lettura GPIO input
-            System.out.println("👁️ Lettura sensore movimento PIR");
-            return false; // Placeholder
+            awaitPin(PIR_SENSOR_PIN);
+            boolean motion = gpioLineDriver.read(PIR_SENSOR_PIN);
+            gpioPins.update(PIR_SENSOR_PIN, p -> p.withState(motion));
+            return motion;
         } catch (Exception e) {
             throw new RuntimeException("Errore lettura sensore PIR", e);
         }
     }
 
+    // Aggiorna lo stato di un pin di INPUT dopo un fronte rilevato
+    public void updateInputState(int pinNumber, boolean level) {
+        GpioPin pin = gpioPins.get(pinNumber);
+        if (pin != null && pin.getType().equals("INPUT")) {
+            gpioPins.update(pinNumber, p -> p.withState(level));
+        }
+    }
+
     // API di compatibilità per il LED semplice (mantengo per non rompere frontend)
     public boolean toggleLed() {
         return toggleDigitalPin(LED_PIN);
     }
 
     public void turnOnLed() {
-        GpioPin pin = gpioPins.get(LED_PIN);
-        if (pin != null && !pin.isState()) {
-            toggleDigitalPin(LED_PIN);
-        }
+        setDigitalPin(LED_PIN, true);
     }
 
     public void turnOffLed() {
-        GpioPin pin = gpioPins.get(LED_PIN);
-        if (pin != null && pin.isState()) {
-            toggleDigitalPin(LED_PIN);
-        }
+        setDigitalPin(LED_PIN, false);
     }
 
     public boolean isLedOn() {
@@ -430,17 +1001,24 @@ public class GpioService {
     }
 
     // Metodo per inviare dati al LED specifico - CONTROLLO GPIO REALE WS2812B
-    private void sendLedData(int ledIndex, int red, int green, int blue) throws IOException, InterruptedException {
-        // Implementazione per WS2812B: usa --mode=time per mantenere il segnale
+    // Restituisce il livello scritto sulla linea; chiamato con il lock del pin
+    private boolean sendLedData(int ledIndex, int red, int green, int blue) throws IOException {
+        // Implementazione per WS2812B: la linea resta aperta e mantiene il livello
         
         if (red > 0 || green > 0 || blue > 0) {
-            // LED acceso - mantieni segnale HIGH per 1 secondo
-            executeCommand("gpioset --mode=time --sec=1 gpiochip0 " + WS2812B_PIN + "=1");
-            System.out.println("🔥 GPIO " + WS2812B_PIN + " → HIGH per LED " + ledIndex + " RGB(" + red + "," + green + "," + blue + ")");
+            // LED acceso - segnale HIGH
+            writePin(WS2812B_PIN, true);
+            if (log.isDebugEnabled()) {
+                log.debug("🔥 GPIO {} → HIGH per LED {} RGB({},{},{})", WS2812B_PIN, ledIndex, red, green, blue);
+            }
+            return true;
         } else {
             // LED spento - segnale LOW
-            executeCommand("gpioset --mode=exit gpiochip0 " + WS2812B_PIN + "=0");
-            System.out.println("💤 GPIO " + WS2812B_PIN + " → LOW per LED " + ledIndex);
+            writePin(WS2812B_PIN, false);
+            if (log.isDebugEnabled()) {
+                log.debug("💤 GPIO {} → LOW per LED {}", WS2812B_PIN, ledIndex);
+            }
+            return false;
         }
     }
 }
\ No newline at end of file
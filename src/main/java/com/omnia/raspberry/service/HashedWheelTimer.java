@@ -0,0 +1,213 @@
+package com.omnia.raspberry.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Timer a ruota (hashed wheel) per i timeout delle regole di automazione
+ *
+ * Un solo thread avanza la ruota di un bucket per tick e visita solo le
+ * scadenze di quel bucket: il costo per tick non dipende dal numero di
+ * timeout attivi, e inserimento/cancellazione sono O(1).
+ * La precisione è quella del tick (default 100 ms), sufficiente per
+ * azioni come "relè acceso per 5 minuti".
+ * Con ruota vuota il thread resta parcheggiato fino al prossimo inserimento.
+ */
+public class HashedWheelTimer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger activeTimeouts = new AtomicInteger();
+    private final Thread worker;
+    private final long startNanos;
+    private volatile boolean running = true;
+    private long tick = 0;
+
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int wheelSize) {
+        this.tickNanos = unit.toNanos(tickDuration);
+        // Dimensione potenza di due: l'indice del bucket è un AND con la maschera
+        int size = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Pianifica l'esecuzione di task dopo il ritardo indicato
+     *
+     * Il task viene eseguito sul thread del timer: deve essere breve
+     * e non bloccante.
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("Timer arrestato");
+        }
+        long deadline = System.nanoTime() - startNanos + unit.toNanos(Math.max(0, delay));
+        Timeout timeout = new Timeout(task, deadline);
+        activeTimeouts.incrementAndGet();
+        pending.add(timeout);
+        LockSupport.unpark(worker);
+        return timeout;
+    }
+
+    public int getActiveTimeouts() {
+        return activeTimeouts.get();
+    }
+
+    public int getWheelSize() {
+        return wheel.length;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            if (activeTimeouts.get() == 0) {
+                // Niente da fare: nessun risveglio finché non arriva un timeout
+                LockSupport.park(this);
+                // Riallinea il tick al tempo corrente dopo il periodo di inattività
+                tick = Math.max(tick, (System.nanoTime() - startNanos) / tickNanos);
+                continue;
+            }
+            long deadline = (tick + 1) * tickNanos;
+            long sleep = deadline - (System.nanoTime() - startNanos);
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                continue;
+            }
+            transferPending();
+            Bucket bucket = wheel[(int) (tick & mask)];
+            bucket.expire(tick);
+            tick++;
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.state.get() != Timeout.ACTIVE) {
+                continue;
+            }
+            long expireTick = Math.max(timeout.deadlineNanos / tickNanos, tick);
+            timeout.expireTick = expireTick;
+            wheel[(int) (expireTick & mask)].add(timeout);
+        }
+    }
+
+    /**
+     * Handle di un timeout pianificato
+     */
+    public final class Timeout {
+        private static final int ACTIVE = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(ACTIVE);
+        private long expireTick;
+        private Timeout next;
+        private Timeout prev;
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Annulla il timeout; false se era già scaduto o annullato
+         */
+        public boolean cancel() {
+            if (state.compareAndSet(ACTIVE, CANCELLED)) {
+                // Rimozione dal bucket rimandata al passaggio della ruota
+                activeTimeouts.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+    }
+
+    // Lista doppiamente collegata, usata solo dal thread del timer
+    private final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expire(long currentTick) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.state.get() == Timeout.CANCELLED) {
+                    remove(timeout);
+                } else if (timeout.expireTick <= currentTick) {
+                    remove(timeout);
+                    if (timeout.state.compareAndSet(Timeout.ACTIVE, Timeout.EXPIRED)) {
+                        activeTimeouts.decrementAndGet();
+                        try {
+                            timeout.task.run();
+                        } catch (Exception e) {
+                            log.error("❌ Errore nel task del timer: {}", e.getMessage());
+                        }
+                    }
+                }
+                timeout = next;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.next = null;
+            timeout.prev = null;
+        }
+    }
+}
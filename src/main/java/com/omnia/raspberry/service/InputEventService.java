@@ -0,0 +1,201 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.hardware.GpioLineDriver;
+import com.omnia.raspberry.model.DeviceEvent;
+import com.omnia.raspberry.model.GpioPin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rilevamento fronti sui pin di INPUT (PIR su GPIO 21)
+ *
+ * Nessun polling: il driver notifica i fronti da un thread bloccato sugli
+ * eventi di linea, quindi a linea ferma il consumo di CPU è nullo.
+ * Ogni fronte passa dal filtro anti-rimbalzo (glitch filter del driver
+ * dove disponibile, più un filtro software su input.debounce-ms), viene
+ * registrato in un ring di eventi con timestamp e pubblicato sul bus.
+ * Un fronte scartato perché dentro la finestra di debounce programma una
+ * rilettura della linea alla chiusura della finestra: se il livello è
+ * cambiato (glitch salita+discesa) viene pubblicato, così lo stato non
+ * resta invertito fino al fronte successivo.
+ */
+@Service
+public class InputEventService {
+
+    private static final Logger log = LoggerFactory.getLogger(InputEventService.class);
+
+    @Autowired
+    private GpioLineDriver gpioLineDriver;
+
+    @Autowired
+    private GpioService gpioService;
+
+    @Autowired
+    private DeviceEventBus eventBus;
+
+    @Value("${input.debounce-ms:50}")
+    private int debounceMillis;
+
+    @Value("${input.event-log-size:256}")
+    private int eventLogSize;
+
+    // Ultimo fronte accettato per linea (stato e istante nanoTime)
+    private final boolean[] lastLevel = new boolean[64];
+    private final long[] lastEdgeNanos = new long[64];
+    private final boolean[] seen = new boolean[64];
+    // Rilettura già programmata a fine finestra di debounce
+    private final boolean[] recheckPending = new boolean[64];
+    private ScheduledExecutorService debounceTimer;
+
+    // Ring degli ultimi fronti accettati
+    private DeviceEvent[] eventLog;
+    private int eventLogHead = 0;
+    private int eventLogCount = 0;
+
+    private long acceptedEdges = 0;
+    private long filteredEdges = 0;
+    private final List<Integer> watchedPins = new ArrayList<>();
+
+    @PostConstruct
+    public void initialize() {
+        eventLog = new DeviceEvent[eventLogSize];
+        debounceTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gpio-debounce");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Le linee di input vengono reclamate in background da GpioService
+        gpioService.whenPinsReady().thenRun(this::watchInputPins);
+    }
+
+    private synchronized void watchInputPins() {
+        for (GpioPin pin : gpioService.getAllGpioPins()) {
+            if (!pin.getType().equals("INPUT") || !pin.isEnabled()) {
+                continue;
+            }
+            int line = pin.getPinNumber();
+            try {
+                lastLevel[line] = gpioLineDriver.read(line);
+                seen[line] = true;
+                gpioService.updateInputState(line, lastLevel[line]);
+                gpioLineDriver.watchEdges(line, debounceMillis * 1000, this::onEdge);
+                watchedPins.add(line);
+                log.info("👁️ Monitoraggio fronti su pin {} ({}), debounce {}ms", line, pin.getName(), debounceMillis);
+            } catch (Exception e) {
+                log.warn("⚠️ Monitoraggio fronti non disponibile su pin {}: {}", line, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void cleanup() {
+        for (int line : watchedPins) {
+            gpioLineDriver.unwatchEdges(line);
+        }
+        debounceTimer.shutdownNow();
+    }
+
+    // Chiamato dal thread dei fronti del driver
+    private void onEdge(int line, boolean level, long timestampNanos) {
+        DeviceEvent event;
+        synchronized (this) {
+            if (seen[line] && level == lastLevel[line]) {
+                // Fronte duplicato (rimbalzo già assorbito)
+                filteredEdges++;
+                return;
+            }
+            long windowNanos = debounceMillis * 1_000_000L;
+            if (seen[line] && timestampNanos - lastEdgeNanos[line] < windowNanos) {
+                filteredEdges++;
+                if (!recheckPending[line]) {
+                    recheckPending[line] = true;
+                    long delay = lastEdgeNanos[line] + windowNanos - System.nanoTime();
+                    debounceTimer.schedule(() -> recheck(line), Math.max(0, delay), TimeUnit.NANOSECONDS);
+                }
+                return;
+            }
+            event = accept(line, level, timestampNanos);
+        }
+        publish(line, level, event);
+    }
+
+    // Rilettura a fine finestra: recupera l'ultimo fronte scartato dal debounce
+    private void recheck(int line) {
+        boolean level;
+        try {
+            level = gpioLineDriver.read(line);
+        } catch (IOException e) {
+            synchronized (this) {
+                recheckPending[line] = false;
+            }
+            log.warn("⚠️ Rilettura pin {} dopo debounce fallita: {}", line, e.getMessage());
+            return;
+        }
+        DeviceEvent event;
+        synchronized (this) {
+            recheckPending[line] = false;
+            if (level == lastLevel[line]) {
+                return;
+            }
+            event = accept(line, level, System.nanoTime());
+        }
+        publish(line, level, event);
+    }
+
+    // Chiamato sotto il monitor
+    private DeviceEvent accept(int line, boolean level, long timestampNanos) {
+        seen[line] = true;
+        lastLevel[line] = level;
+        lastEdgeNanos[line] = timestampNanos;
+        acceptedEdges++;
+
+        DeviceEvent event = DeviceEvent.edge(line, level);
+        eventLog[eventLogHead] = event;
+        eventLogHead = (eventLogHead + 1) % eventLog.length;
+        if (eventLogCount < eventLog.length) {
+            eventLogCount++;
+        }
+        return event;
+    }
+
+    private void publish(int line, boolean level, DeviceEvent event) {
+        gpioService.updateInputState(line, level);
+        eventBus.publish(event);
+        if (log.isDebugEnabled()) {
+            log.debug("👁️ Pin {}: fronte {}", line, level ? "di salita" : "di discesa");
+        }
+    }
+
+    // Ultimi fronti registrati, dal più recente
+    public synchronized List<DeviceEvent> getRecentEvents(int limit) {
+        int count = Math.min(Math.max(limit, 0), eventLogCount);
+        List<DeviceEvent> events = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            events.add(eventLog[(eventLogHead - i + eventLog.length) % eventLog.length]);
+        }
+        return events;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("watchedPins", watchedPins);
+        stats.put("debounceMs", debounceMillis);
+        stats.put("acceptedEdges", acceptedEdges);
+        stats.put("filteredEdges", filteredEdges);
+        stats.put("logged", eventLogCount);
+        return stats;
+    }
+}
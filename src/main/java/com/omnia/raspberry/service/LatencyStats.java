@@ -0,0 +1,59 @@
+package com.omnia.raspberry.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Statistiche di latenza minimali (conteggio, ultima, media, massima)
+ *
+ * Thread-safe e senza allocazioni in registrazione: pensata per i path
+ * caldi (comandi ESP-01S, scritture GPIO, frame LED).
+ */
+public class LatencyStats {
+
+    private long count;
+    private long errors;
+    private long totalNanos;
+    private long maxNanos;
+    private long lastNanos;
+
+    public synchronized void record(long nanos) {
+        count++;
+        totalNanos += nanos;
+        lastNanos = nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+    }
+
+    public synchronized void recordError(long nanos) {
+        errors++;
+        record(nanos);
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getErrors() {
+        return errors;
+    }
+
+    public synchronized double getAverageMillis() {
+        return count > 0 ? totalNanos / (double) count / 1_000_000.0 : 0.0;
+    }
+
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", count);
+        map.put("errors", errors);
+        map.put("lastMs", round(lastNanos / 1_000_000.0));
+        map.put("avgMs", round(count > 0 ? totalNanos / (double) count / 1_000_000.0 : 0.0));
+        map.put("maxMs", round(maxNanos / 1_000_000.0));
+        return map;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000.0) / 1000.0;
+    }
+}
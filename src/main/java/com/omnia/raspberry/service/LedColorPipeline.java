@@ -0,0 +1,153 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.hardware.LedFrameSink;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stadio colore applicato a ogni frame in uscita verso la LED Strip
+ *
+ * Luminosità globale e gamma per canale sono fuse in tre LUT da 256
+ * voci in virgola fissa 8.8, ricalcolate solo quando cambiano i
+ * parametri: per frame resta un lookup per byte sul buffer impacchettato.
+ * Con il dithering temporale attivo la parte frazionaria di ogni
+ * sottopixel viene accumulata e riportata sui frame successivi.
+ *
+ * Le LUT sono pubblicate come snapshot immutabile volatile: luminosità e
+ * lettura non attendono mai un frame in volo. L'invio al delegate (POST
+ * HTTP all'ESP-01S, fino al read timeout) è serializzato da un
+ * ReentrantLock, che non blocca il carrier dei virtual thread.
+ */
+public class LedColorPipeline implements LedFrameSink {
+
+    private final LedFrameSink delegate;
+    private final double gammaRed;
+    private final double gammaGreen;
+    private final double gammaBlue;
+    private final boolean dithering;
+
+    private volatile Tables tables;
+    // Serializza gli invii e protegge output fino alla fine del pushFrame del delegate
+    private final ReentrantLock sendLock = new ReentrantLock();
+    // Stato del dithering: tenuto solo per la durata della conversione
+    private final ReentrantLock residualLock = new ReentrantLock();
+    private byte[] output;
+    private int[] residual;
+
+    public LedColorPipeline(LedFrameSink delegate, int ledCount, double gammaRed, double gammaGreen,
+                            double gammaBlue, boolean dithering) {
+        this.delegate = delegate;
+        this.gammaRed = gammaRed;
+        this.gammaGreen = gammaGreen;
+        this.gammaBlue = gammaBlue;
+        this.dithering = dithering;
+        this.output = new byte[ledCount * 3];
+        this.residual = new int[ledCount * 3];
+        this.tables = buildTables(255);
+    }
+
+    public void setBrightness(int brightness) {
+        tables = buildTables(Math.max(0, Math.min(255, brightness)));
+    }
+
+    public int getBrightness() {
+        return tables.brightness;
+    }
+
+    private Tables buildTables(int brightness) {
+        return new Tables(brightness, fillTable(gammaRed, brightness), fillTable(gammaGreen, brightness),
+                fillTable(gammaBlue, brightness));
+    }
+
+    private static int[] fillTable(double gamma, int brightness) {
+        int[] table = new int[256];
+        double scale = brightness / 255.0;
+        for (int i = 0; i < 256; i++) {
+            // 8.8 fixed point: 255 << 8 = piena intensità
+            table[i] = (int) Math.round(Math.pow(i / 255.0, gamma) * scale * 255.0 * 256.0);
+        }
+        return table;
+    }
+
+    /**
+     * Applica le LUT a un frame RGB impacchettato scrivendo in target
+     */
+    public void apply(byte[] frame, byte[] target, int length) {
+        Tables current = tables;
+        int[] red = current.red;
+        int[] green = current.green;
+        int[] blue = current.blue;
+        int leds = length / 3;
+        if (dithering) {
+            residualLock.lock();
+            try {
+                applyDithered(frame, target, leds, red, green, blue);
+            } finally {
+                residualLock.unlock();
+            }
+        } else {
+            for (int i = 0, o = 0; i < leds; i++, o += 3) {
+                target[o] = (byte) ((red[frame[o] & 0xFF] + 128) >> 8);
+                target[o + 1] = (byte) ((green[frame[o + 1] & 0xFF] + 128) >> 8);
+                target[o + 2] = (byte) ((blue[frame[o + 2] & 0xFF] + 128) >> 8);
+            }
+        }
+    }
+
+    private void applyDithered(byte[] frame, byte[] target, int leds, int[] red, int[] green, int[] blue) {
+        int[] carry = residual;
+        if (carry.length != leds * 3) {
+            carry = new int[leds * 3];
+            residual = carry;
+        }
+        for (int i = 0, o = 0; i < leds; i++, o += 3) {
+            int r = red[frame[o] & 0xFF] + carry[o];
+            int g = green[frame[o + 1] & 0xFF] + carry[o + 1];
+            int b = blue[frame[o + 2] & 0xFF] + carry[o + 2];
+            target[o] = (byte) (r >> 8);
+            target[o + 1] = (byte) (g >> 8);
+            target[o + 2] = (byte) (b >> 8);
+            carry[o] = r & 0xFF;
+            carry[o + 1] = g & 0xFF;
+            carry[o + 2] = b & 0xFF;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public boolean pushFrame(byte[] frame) {
+        sendLock.lock();
+        try {
+            if (output.length != frame.length) {
+                output = new byte[frame.length];
+            }
+            apply(frame, output, frame.length);
+            return delegate.pushFrame(output);
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean setPower(boolean isOn) {
+        return delegate.setPower(isOn);
+    }
+
+    // LUT fuse con la luminosità: sostituite in blocco, mai modificate
+    private static final class Tables {
+        final int brightness;
+        final int[] red;
+        final int[] green;
+        final int[] blue;
+
+        Tables(int brightness, int[] red, int[] green, int[] blue) {
+            this.brightness = brightness;
+            this.red = red;
+            this.green = green;
+            this.blue = blue;
+        }
+    }
+}
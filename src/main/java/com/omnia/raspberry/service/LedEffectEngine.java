@@ -0,0 +1,189 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.effect.LedEffect;
+import com.omnia.raspberry.hardware.LedFrameSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Motore di rendering degli effetti LED Strip
+ *
+ * Un thread dedicato renderizza l'effetto attivo a frequenza fissa in un
+ * buffer preallocato e lo invia al LedFrameSink. Tempo di frame (render +
+ * invio) e deadline mancate vengono contati per verificare che il motore
+ * tenga il frame rate sul Pi.
+ * start/stop usano un ReentrantLock e non synchronized: stop() attende il
+ * frame in corso e con i virtual thread non deve bloccare il carrier.
+ * Se il sink rifiuta i frame per circa un secondo (fps frame consecutivi)
+ * l'effetto si ferma da solo e viene chiamato onSinkDown: il chiamante
+ * riporta la strip al frame statico, che ha il fallback GPIO.
+ */
+public class LedEffectEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(LedEffectEngine.class);
+
+    private final int ledCount;
+    private final int fps;
+    private final long periodNanos;
+    private final byte[] frame;
+    private final LedFrameSink sink;
+    private final ScheduledExecutorService scheduler;
+    private final Runnable onSinkDown;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile LedEffect effect;
+    private ScheduledFuture<?> task;
+    private long frameIndex;
+    private long startNanos;
+
+    // Statistiche (scritte solo dal thread del motore)
+    private final LatencyStats frameTime = new LatencyStats();
+    private volatile long missedDeadlines = 0;
+    private volatile long failedPushes = 0;
+    private volatile long sinkDownStops = 0;
+    private int consecutiveFailedPushes = 0;
+
+    public LedEffectEngine(int ledCount, int fps, LedFrameSink sink, Runnable onSinkDown) {
+        this.ledCount = ledCount;
+        this.fps = Math.max(1, fps);
+        this.periodNanos = 1_000_000_000L / this.fps;
+        this.frame = new byte[ledCount * 3];
+        this.sink = sink;
+        this.onSinkDown = onSinkDown;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledstrip-effects");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MAX_PRIORITY);
+            return thread;
+        });
+    }
+
+    public void start(LedEffect newEffect) {
+        lock.lock();
+        try {
+            stopTask();
+            effect = newEffect;
+            frameIndex = 0;
+            consecutiveFailedPushes = 0;
+            startNanos = System.nanoTime();
+            task = scheduler.scheduleAtFixedRate(this::renderFrame, 0, periodNanos, TimeUnit.NANOSECONDS);
+            log.info("✨ Effetto LED Strip avviato: {} @ {} fps", newEffect.getName(), fps);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void stop() {
+        lock.lock();
+        try {
+            if (effect != null) {
+                log.info("✨ Effetto LED Strip fermato: {}", effect.getName());
+            }
+            stopTask();
+            effect = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isRunning() {
+        return effect != null;
+    }
+
+    public void shutdown() {
+        stop();
+        scheduler.shutdownNow();
+    }
+
+    private void stopTask() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+            // Attende l'eventuale frame in corso: dopo il ritorno la strip è libera
+            try {
+                scheduler.submit(() -> { }).get(1, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                // scheduler chiuso o frame bloccato: si prosegue comunque
+            }
+        }
+    }
+
+    private void renderFrame() {
+        LedEffect current = effect;
+        if (current == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        // In ritardo di oltre un periodo rispetto alla schedulazione ideale
+        long deadline = startNanos + frameIndex * periodNanos;
+        boolean lateStart = start - deadline > periodNanos;
+
+        boolean pushed;
+        try {
+            current.render(frame, ledCount, frameIndex, fps);
+            pushed = sink.pushFrame(frame);
+        } catch (Exception e) {
+            pushed = false;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        frameTime.record(elapsed);
+        // Un frame conta una sola deadline mancata, anche se partito tardi e anche lento
+        if (lateStart || elapsed > periodNanos) {
+            missedDeadlines++;
+        }
+        frameIndex++;
+
+        if (pushed) {
+            consecutiveFailedPushes = 0;
+        } else {
+            failedPushes++;
+            if (++consecutiveFailedPushes >= fps) {
+                stopOnSinkDown(current);
+            }
+        }
+    }
+
+    // Sul thread del motore: niente stopTask(), che attenderebbe proprio questo frame.
+    // tryLock: se start/stop è in corso la strip sta già cambiando proprietario
+    private void stopOnSinkDown(LedEffect current) {
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            if (effect != current) {
+                return;
+            }
+            task.cancel(false);
+            task = null;
+            effect = null;
+            sinkDownStops++;
+        } finally {
+            lock.unlock();
+        }
+        log.warn("⚠️ Effetto LED Strip {} fermato: {} non raggiungibile da {} frame", current.getName(),
+                sink.getName(), consecutiveFailedPushes);
+        onSinkDown.run();
+    }
+
+    public Map<String, Object> getStats() {
+        LedEffect current = effect;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("effect", current != null ? current.getName() : "static");
+        stats.put("running", current != null);
+        stats.put("targetFps", fps);
+        stats.put("sink", sink.getName());
+        stats.put("frameTime", frameTime.toMap());
+        stats.put("missedDeadlines", missedDeadlines);
+        stats.put("failedPushes", failedPushes);
+        stats.put("sinkDownStops", sinkDownStops);
+        return stats;
+    }
+}
@@ -0,0 +1,209 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.model.HistoryPoint;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Storico di una singola metrica su ring buffer di array primitivi
+ *
+ * Tre livelli a memoria fissa:
+ * - 1 secondo per l'ultima ora (valore)
+ * - 1 minuto per le ultime 24 ore (min/max/avg)
+ * - 1 ora per gli ultimi 30 giorni (min/max/avg)
+ * I livelli più grossolani vengono alimentati dal rollup di quelli fini;
+ * l'ora in corso letta dal livello ore include anche il minuto non ancora
+ * chiuso, che vive solo nell'accumulatore dei minuti.
+ * Ogni slot memorizza il proprio istante (in unità del livello) così
+ * gli slot scaduti vengono riconosciuti senza doverli azzerare.
+ */
+public class MetricHistory {
+
+    public static final int SECOND_SLOTS = 3600;
+    public static final int MINUTE_SLOTS = 1440;
+    public static final int HOUR_SLOTS = 720;
+
+    // Livello secondi
+    private final long[] secondStamp = new long[SECOND_SLOTS];
+    private final float[] secondValue = new float[SECOND_SLOTS];
+
+    // Livello minuti
+    private final long[] minuteStamp = new long[MINUTE_SLOTS];
+    private final float[] minuteMin = new float[MINUTE_SLOTS];
+    private final float[] minuteMax = new float[MINUTE_SLOTS];
+    private final float[] minuteAvg = new float[MINUTE_SLOTS];
+
+    // Livello ore
+    private final long[] hourStamp = new long[HOUR_SLOTS];
+    private final float[] hourMin = new float[HOUR_SLOTS];
+    private final float[] hourMax = new float[HOUR_SLOTS];
+    private final float[] hourAvg = new float[HOUR_SLOTS];
+
+    // Accumulatori del minuto e dell'ora in corso
+    private long currentMinute = -1;
+    private double minuteAccMin, minuteAccMax, minuteAccSum;
+    private int minuteAccCount;
+
+    private long currentHour = -1;
+    private double hourAccMin, hourAccMax, hourAccSum;
+    private int hourAccCount;
+
+    public MetricHistory() {
+        // Stamp -1 = slot vuoto
+        Arrays.fill(secondStamp, -1);
+        Arrays.fill(minuteStamp, -1);
+        Arrays.fill(hourStamp, -1);
+    }
+
+    /**
+     * Registra un campione all'istante indicato (epoch millis)
+     */
+    public synchronized void record(long epochMillis, double value) {
+        long second = epochMillis / 1000;
+        int slot = (int) (second % SECOND_SLOTS);
+        secondStamp[slot] = second;
+        secondValue[slot] = (float) value;
+
+        long minute = second / 60;
+        if (minute != currentMinute) {
+            flushMinute();
+            currentMinute = minute;
+            minuteAccMin = value;
+            minuteAccMax = value;
+            minuteAccSum = 0;
+            minuteAccCount = 0;
+        }
+        minuteAccMin = Math.min(minuteAccMin, value);
+        minuteAccMax = Math.max(minuteAccMax, value);
+        minuteAccSum += value;
+        minuteAccCount++;
+    }
+
+    private void flushMinute() {
+        if (currentMinute < 0 || minuteAccCount == 0) {
+            return;
+        }
+        int slot = (int) (currentMinute % MINUTE_SLOTS);
+        minuteStamp[slot] = currentMinute;
+        minuteMin[slot] = (float) minuteAccMin;
+        minuteMax[slot] = (float) minuteAccMax;
+        minuteAvg[slot] = (float) (minuteAccSum / minuteAccCount);
+
+        long hour = currentMinute / 60;
+        if (hour != currentHour) {
+            flushHour();
+            currentHour = hour;
+            hourAccMin = minuteAccMin;
+            hourAccMax = minuteAccMax;
+            hourAccSum = 0;
+            hourAccCount = 0;
+        }
+        hourAccMin = Math.min(hourAccMin, minuteAccMin);
+        hourAccMax = Math.max(hourAccMax, minuteAccMax);
+        hourAccSum += minuteAccSum;
+        hourAccCount += minuteAccCount;
+    }
+
+    private void flushHour() {
+        if (currentHour < 0 || hourAccCount == 0) {
+            return;
+        }
+        int slot = (int) (currentHour % HOUR_SLOTS);
+        hourStamp[slot] = currentHour;
+        hourMin[slot] = (float) hourAccMin;
+        hourMax[slot] = (float) hourAccMax;
+        hourAvg[slot] = (float) (hourAccSum / hourAccCount);
+    }
+
+    /**
+     * Restituisce i punti nell'intervallo [fromMillis, toMillis] aggregati per step
+     *
+     * @param tierSeconds risoluzione del livello da leggere (1, 60 o 3600)
+     * @param stepSeconds ampiezza del bucket, multiplo della risoluzione del livello
+     */
+    public synchronized List<HistoryPoint> query(long fromMillis, long toMillis, int tierSeconds, int stepSeconds) {
+        List<HistoryPoint> points = new ArrayList<>();
+        long fromUnit = Math.floorDiv(fromMillis / 1000, tierSeconds);
+        long toUnit = Math.floorDiv(toMillis / 1000, tierSeconds);
+        int unitsPerStep = Math.max(1, stepSeconds / tierSeconds);
+
+        long bucketStart = -1;
+        double bucketMin = 0, bucketMax = 0, bucketSum = 0;
+        int bucketCount = 0;
+
+        for (long unit = fromUnit; unit <= toUnit; unit++) {
+            long bucket = Math.floorDiv(unit, unitsPerStep);
+            if (bucket != bucketStart) {
+                if (bucketCount > 0) {
+                    points.add(toPoint(bucketStart * unitsPerStep * tierSeconds * 1000L,
+                            bucketMin, bucketMax, bucketSum / bucketCount));
+                }
+                bucketStart = bucket;
+                bucketCount = 0;
+                bucketSum = 0;
+            }
+
+            double min, max, avg;
+            if (tierSeconds == 1) {
+                int slot = (int) (unit % SECOND_SLOTS);
+                if (secondStamp[slot] != unit) continue;
+                min = max = avg = secondValue[slot];
+            } else if (tierSeconds == 60) {
+                if (unit == currentMinute && minuteAccCount > 0) {
+                    min = minuteAccMin; max = minuteAccMax; avg = minuteAccSum / minuteAccCount;
+                } else {
+                    int slot = (int) (unit % MINUTE_SLOTS);
+                    if (minuteStamp[slot] != unit) continue;
+                    min = minuteMin[slot]; max = minuteMax[slot]; avg = minuteAvg[slot];
+                }
+            } else {
+                boolean inHour = unit == currentHour && hourAccCount > 0;
+                boolean inMinute = minuteAccCount > 0 && unit == Math.floorDiv(currentMinute, 60);
+                if (inHour || inMinute) {
+                    // Ora in corso: minuti già chiusi più il minuto ancora aperto
+                    min = Double.POSITIVE_INFINITY;
+                    max = Double.NEGATIVE_INFINITY;
+                    double sum = 0;
+                    int count = 0;
+                    if (inHour) {
+                        min = hourAccMin; max = hourAccMax; sum += hourAccSum; count += hourAccCount;
+                    }
+                    if (inMinute) {
+                        min = Math.min(min, minuteAccMin); max = Math.max(max, minuteAccMax);
+                        sum += minuteAccSum; count += minuteAccCount;
+                    }
+                    avg = sum / count;
+                } else {
+                    int slot = (int) (unit % HOUR_SLOTS);
+                    if (hourStamp[slot] != unit) continue;
+                    min = hourMin[slot]; max = hourMax[slot]; avg = hourAvg[slot];
+                }
+            }
+
+            if (bucketCount == 0) {
+                bucketMin = min;
+                bucketMax = max;
+            } else {
+                bucketMin = Math.min(bucketMin, min);
+                bucketMax = Math.max(bucketMax, max);
+            }
+            bucketSum += avg;
+            bucketCount++;
+        }
+        if (bucketCount > 0) {
+            points.add(toPoint(bucketStart * unitsPerStep * tierSeconds * 1000L,
+                    bucketMin, bucketMax, bucketSum / bucketCount));
+        }
+        return points;
+    }
+
+    // I valori sono memorizzati come float: arrotonda per non esporre rumore di precisione
+    private static HistoryPoint toPoint(long timestamp, double min, double max, double avg) {
+        return new HistoryPoint(timestamp, round2(min), round2(max), round2(avg));
+    }
+
+    private static double round2(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,92 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.model.HistoryPoint;
+import com.omnia.raspberry.model.SystemInfo;
+import org.springframework.stereotype.Service;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Storico delle metriche di sistema alimentato dal sampler
+ *
+ * Memoria fissa (~86 KB per metrica: 12 byte × 3600 + 20 × 1440 + 20 × 720)
+ * indipendentemente dal tempo di uptime: ultima ora al secondo, ultime
+ * 24 ore al minuto, ultimi 30 giorni all'ora.
+ */
+@Service
+public class MetricsHistoryService {
+
+    private static final long SECOND_RETENTION_MS = MetricHistory.SECOND_SLOTS * 1000L;
+    private static final long MINUTE_RETENTION_MS = MetricHistory.MINUTE_SLOTS * 60_000L;
+    private static final long HOUR_RETENTION_MS = MetricHistory.HOUR_SLOTS * 3_600_000L;
+    // Tolleranza sull'età: "ultima ora" calcolata dal client pochi ms prima di now
+    // deve restare sul livello secondi
+    private static final long RETENTION_SLACK_MS = 5_000L;
+
+    private final Map<String, MetricHistory> histories = new LinkedHashMap<>();
+
+    public MetricsHistoryService() {
+        histories.put("cpuTemperature", new MetricHistory());
+        histories.put("cpuUsage", new MetricHistory());
+        histories.put("memoryUsage", new MetricHistory());
+        histories.put("diskUsage", new MetricHistory());
+    }
+
+    public Set<String> getMetricNames() {
+        return histories.keySet();
+    }
+
+    // Chiamato dal sampler dopo la pubblicazione di ogni snapshot
+    public void record(SystemInfo info, long epochMillis) {
+        histories.get("cpuTemperature").record(epochMillis, info.getCpuTemperature());
+        histories.get("cpuUsage").record(epochMillis, info.getCpuUsage());
+        histories.get("memoryUsage").record(epochMillis, info.getMemoryUsage());
+        histories.get("diskUsage").record(epochMillis, info.getDiskUsage());
+    }
+
+    /**
+     * Sceglie il livello più fine la cui ritenzione copre l'intervallo richiesto
+     */
+    public int selectTier(long fromMillis, long toMillis, long stepSeconds) {
+        return selectTier(fromMillis, toMillis, stepSeconds, System.currentTimeMillis());
+    }
+
+    // Conta l'età del punto più vecchio, non solo l'ampiezza: una finestra
+    // breve ma lontana nel passato va letta da un livello che la conserva ancora
+    int selectTier(long fromMillis, long toMillis, long stepSeconds, long nowMillis) {
+        long coverage = Math.max(toMillis - fromMillis, nowMillis - fromMillis) - RETENTION_SLACK_MS;
+        if (stepSeconds < 60 && coverage <= SECOND_RETENTION_MS) {
+            return 1;
+        }
+        if (stepSeconds < 3600 && coverage <= MINUTE_RETENTION_MS) {
+            return 60;
+        }
+        return 3600;
+    }
+
+    public List<HistoryPoint> query(String metric, long fromMillis, long toMillis, int stepSeconds) {
+        return query(metric, fromMillis, toMillis, stepSeconds, System.currentTimeMillis());
+    }
+
+    List<HistoryPoint> query(String metric, long fromMillis, long toMillis, int stepSeconds, long nowMillis) {
+        MetricHistory history = histories.get(metric);
+        if (history == null) {
+            throw new IllegalArgumentException("Metrica non valida. Disponibili: " + histories.keySet());
+        }
+        if (toMillis < fromMillis) {
+            throw new IllegalArgumentException("Intervallo non valido: from > to");
+        }
+
+        int tier = selectTier(fromMillis, toMillis, stepSeconds, nowMillis);
+        long retention = tier == 1 ? SECOND_RETENTION_MS : tier == 60 ? MINUTE_RETENTION_MS : HOUR_RETENTION_MS;
+        long from = Math.max(fromMillis, nowMillis - retention);
+        long to = Math.min(toMillis, nowMillis);
+        if (from > to) {
+            return List.of();
+        }
+        int step = Math.max(tier, (stepSeconds / tier) * tier);
+        return history.query(from, to, tier, step);
+    }
+}
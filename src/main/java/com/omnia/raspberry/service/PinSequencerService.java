@@ -0,0 +1,348 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.model.GpioPin;
+import com.omnia.raspberry.model.PinPattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sequencer di impulsi e pattern sui pin di output
+ *
+ * Un unico thread ad alta priorità esegue tutte le sequenze attive in
+ * ordine di scadenza. Le scadenze sono assolute (inizio sequenza + somma
+ * delle durate), quindi il ritardo di un passo non si accumula sui
+ * successivi; l'attesa parcheggia il thread fino a poco prima del passo
+ * e poi fa spin. Per ogni passo si misura il ritardo rispetto alla
+ * scadenza (jitter). La richiesta HTTP ritorna subito dopo l'accodamento.
+ * Coda e stato sono protetti da un ReentrantLock (non synchronized) che
+ * copre solo la decisione del valore e il riaccodamento.
+ * Il thread di temporizzazione non scrive mai sul GPIO: consegna il valore
+ * a un pool di writer ("pin-sequencer-io"), così la latenza di fork di
+ * gpioset su un pin non sposta le scadenze degli altri pattern. Ogni
+ * sequenza ha un solo valore in attesa: se il driver non tiene il passo,
+ * i passi intermedi vengono fusi e si scrive l'ultimo (contatore coalesced).
+ * Writer e stop() sullo stesso pin passano dal lock della sequenza e
+ * controllano il flag cancelled: lo spegnimento di stop() è sempre
+ * l'ultima scrittura.
+ */
+@Service
+public class PinSequencerService {
+
+    private static final Logger log = LoggerFactory.getLogger(PinSequencerService.class);
+
+    // Margine di spin prima di ogni passo
+    private static final long SPIN_NANOS = 200_000L;
+    private static final int MAX_STEPS = 256;
+    private static final long MAX_STEP_MS = 3_600_000L;
+
+    @Autowired
+    private GpioService gpioService;
+
+    @Value("${sequencer.max-repeat:10000}")
+    private int maxRepeat;
+
+    @Value("${sequencer.writer-threads:4}")
+    private int writerThreads;
+
+    private final PriorityQueue<Sequence> queue = new PriorityQueue<>((a, b) -> Long.compare(a.deadline, b.deadline));
+    private final Map<Integer, Sequence> active = new LinkedHashMap<>();
+    // Ultima sequenza per pin (anche terminata), per le statistiche
+    private final Map<Integer, Sequence> last = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Thread worker;
+    private ExecutorService writers;
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void initialize() {
+        AtomicInteger threadId = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(Math.max(1, writerThreads), runnable -> {
+            Thread thread = new Thread(runnable, "pin-sequencer-io-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker = new Thread(this::run, "pin-sequencer");
+        worker.setDaemon(true);
+        worker.setPriority(Thread.MAX_PRIORITY);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writers.shutdownNow();
+    }
+
+    /**
+     * Avvia un pattern su un pin, sostituendo quello eventualmente in corso
+     */
+    public Map<String, Object> start(int pinNumber, PinPattern pattern) {
+        GpioPin pin = gpioService.getGpioPin(pinNumber);
+        if (pin == null || !pin.isEnabled() || pin.getType().equals("INPUT") || pin.getType().equals("PWM")) {
+            throw new IllegalArgumentException("Pin " + pinNumber + " non è un pin di output disponibile");
+        }
+        List<Long> durations = pattern.getDurationsMs();
+        if (durations == null || durations.isEmpty() || durations.size() > MAX_STEPS) {
+            throw new IllegalArgumentException("durationsMs deve contenere da 1 a " + MAX_STEPS + " durate");
+        }
+        long[] stepNanos = new long[durations.size()];
+        for (int i = 0; i < stepNanos.length; i++) {
+            Long ms = durations.get(i);
+            if (ms == null || ms < 1 || ms > MAX_STEP_MS) {
+                throw new IllegalArgumentException("Durata non valida in posizione " + i + ": " + ms + " (1-" + MAX_STEP_MS + " ms)");
+            }
+            stepNanos[i] = ms * 1_000_000L;
+        }
+        if (pattern.getRepeat() < 0 || pattern.getRepeat() > maxRepeat) {
+            throw new IllegalArgumentException("repeat deve essere tra 0 (infinito) e " + maxRepeat);
+        }
+
+        Sequence sequence = new Sequence(pinNumber, stepNanos, pattern.getRepeat(), System.nanoTime());
+        lock.lock();
+        try {
+            Sequence previous = active.put(pinNumber, sequence);
+            if (previous != null) {
+                queue.remove(previous);
+                previous.finished = true;
+                previous.cancelled = true;
+            }
+            last.put(pinNumber, sequence);
+            queue.add(sequence);
+        } finally {
+            lock.unlock();
+        }
+        LockSupport.unpark(worker);
+        log.info("🎵 Pattern su pin {}: {} ms x{}", pinNumber, durations, pattern.getRepeat() == 0 ? "∞" : pattern.getRepeat());
+        return sequence.toMap();
+    }
+
+    /**
+     * Ferma il pattern in corso e spegne il pin
+     */
+    public boolean stop(int pinNumber) {
+        Sequence sequence;
+        lock.lock();
+        try {
+            sequence = active.remove(pinNumber);
+            if (sequence == null) {
+                return false;
+            }
+            queue.remove(sequence);
+            sequence.finished = true;
+            sequence.cancelled = true;
+        } finally {
+            lock.unlock();
+        }
+        // Attende l'eventuale passo in scrittura: dopo, il worker vede cancelled e non scrive più
+        sequence.writeLock.lock();
+        try {
+            gpioService.setDigitalPin(pinNumber, false);
+        } finally {
+            sequence.writeLock.unlock();
+        }
+        return true;
+    }
+
+    public List<Map<String, Object>> getStatus() {
+        List<Map<String, Object>> status = new ArrayList<>();
+        lock.lock();
+        try {
+            for (Sequence sequence : last.values()) {
+                status.add(sequence.toMap());
+            }
+        } finally {
+            lock.unlock();
+        }
+        return status;
+    }
+
+    private void run() {
+        while (running) {
+            Sequence next;
+            lock.lock();
+            try {
+                next = queue.peek();
+            } finally {
+                lock.unlock();
+            }
+            if (next == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            long remaining = next.deadline - System.nanoTime();
+            if (remaining > SPIN_NANOS) {
+                // Un nuovo pattern con scadenza più vicina fa unpark e ricalcola
+                LockSupport.parkNanos(this, remaining - SPIN_NANOS);
+                continue;
+            }
+            while (System.nanoTime() < next.deadline) {
+                Thread.onSpinWait();
+            }
+            boolean dispatch = false;
+            lock.lock();
+            try {
+                if (queue.peek() == next) {
+                    queue.poll();
+                    Boolean value = step(next);
+                    if (value != null) {
+                        // Un valore ancora in attesa viene sostituito: il writer scriverà solo l'ultimo
+                        if (next.pending.getAndSet(value) != null) {
+                            next.coalesced++;
+                        }
+                        // Al più un writer per sequenza: un pin lento occupa un solo thread del pool
+                        dispatch = next.queued.compareAndSet(false, true);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (dispatch) {
+                try {
+                    writers.execute(() -> write(next));
+                } catch (RejectedExecutionException e) {
+                    // Servizio in chiusura
+                }
+            }
+        }
+    }
+
+    // Eseguito sotto lock: decide il valore del passo e riaccoda, la scrittura la fa il chiamante
+    private Boolean step(Sequence sequence) {
+        if (sequence.finished) {
+            return null;
+        }
+        long late = System.nanoTime() - sequence.deadline;
+        boolean done = sequence.repeat > 0 && sequence.cycle >= sequence.repeat;
+        // Passi pari = ON, dispari = OFF; a fine pattern il pin resta spento
+        boolean value = !done && sequence.index % 2 == 0;
+        sequence.recordJitter(late);
+
+        if (done) {
+            sequence.finished = true;
+            active.remove(sequence.pin, sequence);
+            return value;
+        }
+        sequence.deadline += sequence.steps[sequence.index];
+        sequence.index++;
+        if (sequence.index == sequence.steps.length) {
+            sequence.index = 0;
+            sequence.cycle++;
+        }
+        queue.add(sequence);
+        return value;
+    }
+
+    // Eseguito da un writer: scrive i valori in attesa finché la sequenza non è al passo
+    private void write(Sequence sequence) {
+        sequence.writeLock.lock();
+        try {
+            while (true) {
+                Boolean value = sequence.pending.getAndSet(null);
+                if (value == null) {
+                    sequence.queued.set(false);
+                    // Un valore arrivato dopo il getAndSet senza nuovo writer lo prende questo
+                    if (sequence.pending.get() == null || !sequence.queued.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                if (sequence.cancelled) {
+                    continue;
+                }
+                try {
+                    gpioService.setDigitalPin(sequence.pin, value, false);
+                } catch (Exception e) {
+                    lock.lock();
+                    try {
+                        sequence.errors++;
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+        } finally {
+            sequence.writeLock.unlock();
+        }
+    }
+
+    private static final class Sequence {
+        final int pin;
+        final long[] steps;
+        final int repeat;
+        final long startNanos;
+        long deadline;
+        int index = 0;
+        int cycle = 0;
+        boolean finished = false;
+        // Fermata da stop() o sostituita: il worker non deve più scrivere sul pin
+        volatile boolean cancelled = false;
+        // Serializza le scritture dei writer con lo spegnimento di stop()
+        final ReentrantLock writeLock = new ReentrantLock();
+        // Prossimo valore da scrivere, null se il writer è al passo
+        final AtomicReference<Boolean> pending = new AtomicReference<>();
+        // Un writer è già in coda o in esecuzione per questa sequenza
+        final AtomicBoolean queued = new AtomicBoolean();
+
+        long executedSteps = 0;
+        long errors = 0;
+        long coalesced = 0;
+        double jitterAvgNanos = 0.0;
+        long jitterMaxNanos = 0L;
+
+        Sequence(int pin, long[] steps, int repeat, long startNanos) {
+            this.pin = pin;
+            this.steps = steps;
+            this.repeat = repeat;
+            this.startNanos = startNanos;
+            this.deadline = startNanos;
+        }
+
+        void recordJitter(long lateNanos) {
+            executedSteps++;
+            jitterAvgNanos += (lateNanos - jitterAvgNanos) / executedSteps;
+            if (lateNanos > jitterMaxNanos) {
+                jitterMaxNanos = lateNanos;
+            }
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("pin", pin);
+            map.put("running", !finished);
+            map.put("cycle", cycle);
+            map.put("repeat", repeat);
+            map.put("steps", executedSteps);
+            map.put("errors", errors);
+            map.put("coalesced", coalesced);
+            map.put("jitterAvgMicros", Math.round(jitterAvgNanos / 100.0) / 10.0);
+            map.put("jitterMaxMicros", Math.round(jitterMaxNanos / 100.0) / 10.0);
+            map.put("elapsedMs", (System.nanoTime() - startNanos) / 1_000_000L);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.model.GpioPin;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Tabella dei pin indicizzata per numero BCM (banco 0-31)
+ *
+ * Ogni slot contiene uno snapshot GpioPin immutabile: le letture sono
+ * un semplice accesso all'array e non bloccano mai.
+ * Le scritture che toccano l'hardware prendono il lock del pin, così
+ * scrittura sul driver e aggiornamento del modello sono atomiche per
+ * pin; le modifiche di solo modello usano un ciclo CAS sullo slot.
+ */
+public class PinTable {
+
+    public static final int SIZE = 32;
+
+    private final AtomicReferenceArray<GpioPin> pins = new AtomicReferenceArray<>(SIZE);
+    private final ReentrantLock[] locks = new ReentrantLock[SIZE];
+
+    public PinTable() {
+        for (int i = 0; i < SIZE; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public GpioPin get(int pinNumber) {
+        if (pinNumber < 0 || pinNumber >= SIZE) {
+            return null;
+        }
+        return pins.get(pinNumber);
+    }
+
+    public void put(GpioPin pin) {
+        pins.set(pin.getPinNumber(), pin);
+    }
+
+    /**
+     * Sostituisce lo snapshot di un pin con un aggiornamento atomico (CAS)
+     */
+    public GpioPin update(int pinNumber, UnaryOperator<GpioPin> change) {
+        while (true) {
+            GpioPin current = pins.get(pinNumber);
+            if (current == null) {
+                return null;
+            }
+            GpioPin next = change.apply(current);
+            if (pins.compareAndSet(pinNumber, current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Vista immutabile di tutti i pin configurati, in ordine BCM
+     */
+    public List<GpioPin> snapshot() {
+        List<GpioPin> list = new ArrayList<>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            GpioPin pin = pins.get(i);
+            if (pin != null) {
+                list.add(pin);
+            }
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    public int size() {
+        int count = 0;
+        for (int i = 0; i < SIZE; i++) {
+            if (pins.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public void lock(int pinNumber) {
+        locks[pinNumber].lock();
+    }
+
+    public void unlock(int pinNumber) {
+        locks[pinNumber].unlock();
+    }
+
+    /**
+     * Lock di più pin in ordine crescente di BCM (nessun deadlock tra batch)
+     */
+    public void lockAll(long mask) {
+        for (int i = 0; i < SIZE; i++) {
+            if ((mask & (1L << i)) != 0) {
+                locks[i].lock();
+            }
+        }
+    }
+
+    public void unlockAll(long mask) {
+        for (int i = SIZE - 1; i >= 0; i--) {
+            if ((mask & (1L << i)) != 0) {
+                locks[i].unlock();
+            }
+        }
+    }
+}
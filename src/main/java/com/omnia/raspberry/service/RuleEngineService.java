@@ -0,0 +1,309 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.model.AutomationRule;
+import com.omnia.raspberry.model.DeviceEvent;
+import com.omnia.raspberry.model.GpioPin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Motore di automazione: regole trigger → azione sui pin di output
+ *
+ * Le regole vengono compilate in una tabella di dispatch indicizzata per
+ * sorgente del trigger ("edge:21", "metric:cpuTemperature"): un evento
+ * del bus valuta solo le regole della sua sorgente. La tabella è
+ * immutabile e viene ricostruita a ogni modifica, quindi la valutazione
+ * non prende lock.
+ * Le azioni temporizzate (ripristino dopo durationMs) usano un unico
+ * HashedWheelTimer; un nuovo trigger riarma il timeout della regola.
+ * Le scritture GPIO girano su un thread dedicato ("rules-actions"), mai
+ * sul worker della ruota né sul thread del bus: un gpioset lento non
+ * ritarda i tick né la consegna degli eventi.
+ * Le regole "pin" che formerebbero un ciclo (azione che riattiva il
+ * proprio trigger, direttamente o tramite altre regole) sono rifiutate.
+ */
+@Service
+public class RuleEngineService {
+
+    private static final Logger log = LoggerFactory.getLogger(RuleEngineService.class);
+
+    // Metriche pubblicate sul bus da SystemMonitorService
+    private static final Set<String> METRICS = Set.of("cpuTemperature", "cpuUsage", "memoryUsage", "diskUsage");
+
+    @Autowired
+    private DeviceEventBus eventBus;
+
+    @Autowired
+    private GpioService gpioService;
+
+    @Value("${rules.wheel.tick-ms:100}")
+    private long tickMillis;
+
+    @Value("${rules.wheel.size:512}")
+    private int wheelSize;
+
+    private final Map<String, CompiledRule> rules = new LinkedHashMap<>();
+    private volatile Map<String, CompiledRule[]> dispatchTable = Map.of();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    private final AtomicLong evaluations = new AtomicLong();
+    private final AtomicLong firings = new AtomicLong();
+
+    private HashedWheelTimer timer;
+    private ExecutorService actions;
+    private DeviceEventBus.Subscription subscription;
+
+    @PostConstruct
+    public void initialize() {
+        actions = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rules-actions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer = new HashedWheelTimer("rules-timer", tickMillis, TimeUnit.MILLISECONDS, wheelSize);
+        subscription = eventBus.subscribe("rules", this::onEvent);
+        log.info("⚙️ Motore regole avviato (tick {}ms, ruota {} slot)", tickMillis, timer.getWheelSize());
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        subscription.close();
+        timer.close();
+        actions.shutdownNow();
+    }
+
+    public synchronized AutomationRule addRule(AutomationRule rule) {
+        CompiledRule compiled = compile(rule);
+        rejectCycles(rule);
+        rule.setId("r" + nextId.getAndIncrement());
+        rules.put(rule.getId(), compiled);
+        rebuildDispatchTable();
+        log.info("⚙️ Regola {} aggiunta: {} → pin {}", rule.getId(), compiled.source, rule.getActionPin());
+        return rule;
+    }
+
+    public synchronized boolean removeRule(String id) {
+        CompiledRule removed = rules.remove(id);
+        if (removed == null) {
+            return false;
+        }
+        removed.cancelPending();
+        rebuildDispatchTable();
+        return true;
+    }
+
+    public synchronized List<AutomationRule> getRules() {
+        List<AutomationRule> list = new ArrayList<>();
+        for (CompiledRule compiled : rules.values()) {
+            list.add(compiled.rule);
+        }
+        return list;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rules", rules.size());
+        stats.put("sources", dispatchTable.size());
+        stats.put("evaluations", evaluations.get());
+        stats.put("firings", firings.get());
+        stats.put("pendingTimers", timer.getActiveTimeouts());
+        return stats;
+    }
+
+    private CompiledRule compile(AutomationRule rule) {
+        String type = rule.getTriggerType();
+        if (type == null || rule.getTriggerKey() == null) {
+            throw new IllegalArgumentException("triggerType e triggerKey sono obbligatori");
+        }
+        CompiledRule compiled = new CompiledRule(rule, type + ":" + rule.getTriggerKey());
+        switch (type) {
+            case "edge":
+            case "pin":
+                requirePinTrigger(rule);
+                String edge = rule.getEdge() == null ? "rising" : rule.getEdge();
+                compiled.onRising = edge.equals("rising") || edge.equals("both");
+                compiled.onFalling = edge.equals("falling") || edge.equals("both");
+                if (!compiled.onRising && !compiled.onFalling) {
+                    throw new IllegalArgumentException("edge non valido: " + edge + " (rising|falling|both)");
+                }
+                break;
+            case "metric":
+                if (!METRICS.contains(rule.getTriggerKey())) {
+                    throw new IllegalArgumentException("triggerKey non valido: " + rule.getTriggerKey() + " " + METRICS);
+                }
+                if (">".equals(rule.getOperator())) {
+                    compiled.above = true;
+                } else if (!"<".equals(rule.getOperator())) {
+                    throw new IllegalArgumentException("operator non valido: " + rule.getOperator() + " (>|<)");
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("triggerType non valido: " + type + " (edge|pin|metric)");
+        }
+
+        GpioPin target = gpioService.getGpioPin(rule.getActionPin());
+        if (target == null || !target.isEnabled() || target.getType().equals("INPUT") || target.getType().equals("PWM")) {
+            throw new IllegalArgumentException("actionPin " + rule.getActionPin() + " non è un pin di OUTPUT disponibile");
+        }
+        if (rule.getDurationMs() < 0) {
+            throw new IllegalArgumentException("durationMs non può essere negativo");
+        }
+        return compiled;
+    }
+
+    // edge → pin di INPUT, pin → pin di output (gli unici che pubblicano quel tipo di evento)
+    private void requirePinTrigger(AutomationRule rule) {
+        GpioPin trigger;
+        try {
+            trigger = gpioService.getGpioPin(Integer.parseInt(rule.getTriggerKey()));
+        } catch (NumberFormatException e) {
+            trigger = null;
+        }
+        boolean input = trigger != null && trigger.getType().equals("INPUT");
+        if (trigger == null || input != rule.getTriggerType().equals("edge")) {
+            throw new IllegalArgumentException("triggerKey " + rule.getTriggerKey() + " non è un pin di "
+                    + (rule.getTriggerType().equals("edge") ? "INPUT" : "output") + " configurato");
+        }
+    }
+
+    // Grafo pin → pin delle regole "pin": la nuova regola non deve poter raggiungere il proprio trigger
+    private void rejectCycles(AutomationRule rule) {
+        if (!rule.getTriggerType().equals("pin")) {
+            return;
+        }
+        String trigger = rule.getTriggerKey();
+        Set<String> visited = new HashSet<>();
+        Deque<String> frontier = new ArrayDeque<>();
+        frontier.push(String.valueOf(rule.getActionPin()));
+        while (!frontier.isEmpty()) {
+            String pin = frontier.pop();
+            if (pin.equals(trigger)) {
+                throw new IllegalArgumentException("la regola forma un ciclo: pin " + rule.getActionPin()
+                        + " riattiva il trigger pin " + trigger);
+            }
+            if (!visited.add(pin)) {
+                continue;
+            }
+            for (CompiledRule existing : rules.values()) {
+                AutomationRule other = existing.rule;
+                if (other.getTriggerType().equals("pin") && other.getTriggerKey().equals(pin)) {
+                    frontier.push(String.valueOf(other.getActionPin()));
+                }
+            }
+        }
+    }
+
+    private void rebuildDispatchTable() {
+        Map<String, List<CompiledRule>> grouped = new HashMap<>();
+        for (CompiledRule compiled : rules.values()) {
+            grouped.computeIfAbsent(compiled.source, key -> new ArrayList<>()).add(compiled);
+        }
+        Map<String, CompiledRule[]> table = new HashMap<>();
+        grouped.forEach((source, list) -> table.put(source, list.toArray(new CompiledRule[0])));
+        dispatchTable = table;
+    }
+
+    // Chiamato dal dispatcher del bus: O(regole della sorgente)
+    private void onEvent(DeviceEvent event) {
+        CompiledRule[] matching = dispatchTable.get(event.getType() + ":" + event.getKey());
+        if (matching == null) {
+            return;
+        }
+        for (CompiledRule compiled : matching) {
+            evaluations.incrementAndGet();
+            if (compiled.rule.isEnabled() && compiled.matches(event)) {
+                fire(compiled);
+            }
+        }
+    }
+
+    private void fire(CompiledRule compiled) {
+        AutomationRule rule = compiled.rule;
+        firings.incrementAndGet();
+        submit(rule.getActionPin(), rule.isActionState());
+        if (rule.getDurationMs() > 0) {
+            // Riarmo: un nuovo trigger prolunga la durata invece di accumulare timeout
+            compiled.cancelPending();
+            compiled.pending = timer.newTimeout(() -> submit(rule.getActionPin(), !rule.isActionState()),
+                    rule.getDurationMs(), TimeUnit.MILLISECONDS);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("⚙️ Regola {} → pin {} {} (durata {}ms)", rule.getId(), rule.getActionPin(),
+                    rule.isActionState() ? "ON" : "OFF", rule.getDurationMs());
+        }
+    }
+
+    // Un solo thread: le azioni restano nell'ordine in cui sono scattate
+    private void submit(int pinNumber, boolean state) {
+        try {
+            actions.execute(() -> setPin(pinNumber, state));
+        } catch (RejectedExecutionException e) {
+            log.debug("⚙️ Azione su pin {} scartata: motore regole fermo", pinNumber);
+        }
+    }
+
+    private void setPin(int pinNumber, boolean state) {
+        try {
+            gpioService.setDigitalPin(pinNumber, state);
+        } catch (Exception e) {
+            log.error("❌ Azione regola su pin {} fallita: {}", pinNumber, e.getMessage());
+        }
+    }
+
+    private static final class CompiledRule {
+        final AutomationRule rule;
+        final String source;
+        boolean onRising;
+        boolean onFalling;
+        boolean above;
+        // Metriche: la regola scatta solo all'attraversamento della soglia
+        boolean conditionActive;
+        volatile HashedWheelTimer.Timeout pending;
+
+        CompiledRule(AutomationRule rule, String source) {
+            this.rule = rule;
+            this.source = source;
+        }
+
+        boolean matches(DeviceEvent event) {
+            Object value = event.getValue();
+            if (value instanceof Boolean level) {
+                return level ? onRising : onFalling;
+            }
+            if (value instanceof Number number) {
+                double v = number.doubleValue();
+                boolean active = above ? v > rule.getThreshold() : v < rule.getThreshold();
+                boolean crossed = active && !conditionActive;
+                conditionActive = active;
+                return crossed;
+            }
+            return false;
+        }
+
+        void cancelPending() {
+            HashedWheelTimer.Timeout timeout = pending;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+    }
+}
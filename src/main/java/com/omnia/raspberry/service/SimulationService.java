@@ -0,0 +1,83 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.hardware.GpioLineDriver;
+import com.omnia.raspberry.hardware.LedFrameSink;
+import com.omnia.raspberry.hardware.PwmDriver;
+import com.omnia.raspberry.hardware.SimulatedEsp01Server;
+import com.omnia.raspberry.hardware.SimulatedGpioLineDriver;
+import com.omnia.raspberry.hardware.SimulatedLedFrameSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stato dei backend simulati e iniezione di segnali in ingresso
+ *
+ * Con gpio.simulation.mode=true espone latenze/guasti iniettati e
+ * contatori di GPIO, PWM e ESP-01S simulati, e permette di pilotare le
+ * linee di INPUT (PIR, pulsanti) come farebbe un segnale esterno: i
+ * fronti attraversano InputEventService, bus e regole come sul Pi.
+ */
+@Service
+public class SimulationService {
+
+    private static final Logger log = LoggerFactory.getLogger(SimulationService.class);
+
+    @Autowired
+    private GpioLineDriver gpioLineDriver;
+
+    @Autowired
+    private PwmDriver fanPwmDriver;
+
+    @Autowired
+    private LedFrameSink ledFrameSink;
+
+    @Autowired
+    private ObjectProvider<SimulatedEsp01Server> esp01Simulator;
+
+    public boolean isEnabled() {
+        return gpioLineDriver instanceof SimulatedGpioLineDriver;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", isEnabled());
+        if (gpioLineDriver instanceof SimulatedGpioLineDriver simulated) {
+            status.put("gpio", simulated.getFaults().getStats());
+        }
+        status.put("pwm", fanPwmDriver.getStats());
+        if (ledFrameSink instanceof SimulatedLedFrameSink sink) {
+            Map<String, Object> ledStrip = new LinkedHashMap<>();
+            ledStrip.put("sink", sink.getName());
+            ledStrip.put("framesReceived", sink.getFramesReceived());
+            ledStrip.put("power", sink.isPower());
+            status.put("ledStrip", ledStrip);
+        }
+        SimulatedEsp01Server server = esp01Simulator.getIfAvailable();
+        if (server != null) {
+            status.put("esp01", server.getStats());
+        }
+        return status;
+    }
+
+    /**
+     * Forza il livello di una linea di INPUT simulata
+     *
+     * @throws IllegalStateException se la simulazione non è attiva
+     * @throws IOException se la linea non è reclamata come INPUT
+     */
+    public void simulateInput(int line, boolean value) throws IOException {
+        if (!(gpioLineDriver instanceof SimulatedGpioLineDriver simulated)) {
+            throw new IllegalStateException("Simulazione non attiva (gpio.simulation.mode=false)");
+        }
+        simulated.simulateInput(line, value);
+        if (log.isDebugEnabled()) {
+            log.debug("🧪 Input simulato su linea {} → {}", line, value ? "HIGH" : "LOW");
+        }
+    }
+}
@@ -1,124 +1,336 @@
 package com.omnia.raspberry.service;
 
+import com.omnia.raspberry.model.DeviceEvent;
 import com.omnia.raspberry.model.SystemInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Monitoraggio di sistema con campionamento in background
+ *
+ * Un job schedulato legge direttamente /proc, /sys e statvfs (niente
+ * processi bash) e pubblica uno snapshot SystemInfo immutabile: le
+ * richieste HTTP leggono solo il riferimento volatile.
+ * Un campionamento alla volta (sampleLock): una corsa sovrapposta, ad
+ * esempio l'avvio con lo scheduler già partito, viene saltata invece di
+ * contendere calcolatore CPU e ultimi valori notificati.
+ */
 @Service
 public class SystemMonitorService {
 
+    private static final Logger log = LoggerFactory.getLogger(SystemMonitorService.class);
+
+    private static final Path ROOT_FS = Path.of("/");
+
+    // Sorgenti sotto radici configurabili (fixture per benchmark e sviluppo fuori dal Pi)
+    private final Path thermalZone;
+    private final Path procStat;
+    private final Path procMeminfo;
+    private final Path procUptime;
+    private final Path kernelOsrelease;
+
+    @Autowired
+    private MetricsHistoryService metricsHistoryService;
+
+    @Autowired
+    private DeviceEventBus eventBus;
+
+    @Autowired
+    private GpioService gpioService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Variazione minima rispetto all'ultimo valore notificato per generare un evento
+    @Value("${events.threshold.cpu-temperature:0.5}")
+    private double temperatureThreshold;
+    @Value("${events.threshold.cpu-usage:5.0}")
+    private double cpuUsageThreshold;
+    @Value("${events.threshold.memory-usage:1.0}")
+    private double memoryUsageThreshold;
+    @Value("${events.threshold.disk-usage:1.0}")
+    private double diskUsageThreshold;
+
+    private final ReentrantLock sampleLock = new ReentrantLock();
+
+    // Ultimi valori notificati sul bus (temperatura, cpu, memoria, disco), sotto sampleLock
+    private final double[] lastNotified = {Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+
+    // Delta dei jiffies tra un campione e il successivo
+    private final CpuUsageCalculator cpuUsageCalculator;
+
+    // Snapshot pubblicato dal sampler, letto senza lock dalle richieste
+    private volatile SystemInfo snapshot = SystemInfo.builder().build();
+
+    // Costanti per tutta la vita del processo
+    private String kernelVersion = "Unknown";
+    private boolean thermalZoneAvailable;
+
+    // Durata ed errori di ogni sonda (system.monitor.probe) e del campione completo
+    private Probe temperatureProbe;
+    private Probe cpuProbe;
+    private Probe memoryProbe;
+    private Probe diskProbe;
+    private Probe uptimeProbe;
+    private Timer sampleTimer;
+
+    public SystemMonitorService(@Value("${system.monitor.proc-root:/proc}") String procRoot,
+                                @Value("${system.monitor.sys-root:/sys}") String sysRoot) {
+        Path proc = Path.of(procRoot);
+        this.thermalZone = Path.of(sysRoot, "class/thermal/thermal_zone0/temp");
+        this.procStat = proc.resolve("stat");
+        this.procMeminfo = proc.resolve("meminfo");
+        this.procUptime = proc.resolve("uptime");
+        this.kernelOsrelease = proc.resolve("sys/kernel/osrelease");
+        this.cpuUsageCalculator = new CpuUsageCalculator(procStat);
+    }
+
+    @PostConstruct
+    public void initialize() {
+        temperatureProbe = new Probe(meterRegistry, "temperature");
+        cpuProbe = new Probe(meterRegistry, "cpu");
+        memoryProbe = new Probe(meterRegistry, "memory");
+        diskProbe = new Probe(meterRegistry, "disk");
+        uptimeProbe = new Probe(meterRegistry, "uptime");
+        sampleTimer = Timer.builder("system.monitor.sample")
+                .description("Durata di un campionamento completo di /proc e /sys")
+                .register(meterRegistry);
+        kernelVersion = getKernelVersion();
+        thermalZoneAvailable = Files.isReadable(thermalZone);
+        if (!thermalZoneAvailable) {
+            log.warn("⚠️ Sensore temperatura non disponibile: {}", thermalZone);
+        }
+        sample();
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        cpuUsageCalculator.close();
+    }
+
     public SystemInfo getSystemInfo() {
-        SystemInfo info = new SystemInfo();
+        return snapshot;
+    }
+
+    public boolean isTemperatureAvailable() {
+        return thermalZoneAvailable;
+    }
+
+    @Scheduled(fixedRateString = "${system.monitor.interval-ms:1000}")
+    public void sample() {
+        if (!sampleLock.tryLock()) {
+            log.debug("⏭️ Campionamento già in corso, salto");
+            return;
+        }
+        try {
+            sampleLocked();
+        } finally {
+            sampleLock.unlock();
+        }
+    }
+
+    private void sampleLocked() {
+        SystemInfo.Builder info = SystemInfo.builder();
+        long sampleStart = System.nanoTime();
         
         try {
             // Temperatura CPU
-            info.setCpuTemperature(getCpuTemperature());
+            long start = System.nanoTime();
+            info.cpuTemperature(getCpuTemperature());
+            start = temperatureProbe.record(start);
             
-            // Utilizzo CPU
-            info.setCpuUsage(getCpuUsage());
+            // Utilizzo CPU (totale e per core)
+            updateCpuUsage(info);
+            start = cpuProbe.record(start);
             
             // Utilizzo memoria
-            info.setMemoryUsage(getMemoryUsage());
+            info.memoryUsage(getMemoryUsage());
+            start = memoryProbe.record(start);
             
             // Utilizzo disco
-            info.setDiskUsage(getDiskUsage());
+            info.diskUsage(getDiskUsage());
+            start = diskProbe.record(start);
             
             // Uptime
-            info.setUptime(getUptime());
+            info.uptime(getUptime());
+            uptimeProbe.record(start);
             
             // Versione kernel
-            info.setKernelVersion(getKernelVersion());
+            info.kernelVersion(kernelVersion);
             
-            // Stato ventola (placeholder)
-            info.setFanStatus(true);
-            info.setFanSpeed(50); // 50% default
+            // Stato ventola reale (duty cycle impostato sul driver PWM)
+            int fanDuty = gpioService.getFanDutyCycle();
+            info.fanStatus(fanDuty > 0);
+            info.fanSpeed(fanDuty);
             
         } catch (Exception e) {
-            System.err.println("❌ Errore nel recupero informazioni sistema: " + e.getMessage());
+            log.error("❌ Errore nel recupero informazioni sistema: {}", e.getMessage());
         }
         
-        return info;
+        sampleTimer.record(System.nanoTime() - sampleStart, TimeUnit.NANOSECONDS);
+
+        // Pubblicazione atomica del nuovo snapshot
+        SystemInfo published = info.build();
+        snapshot = published;
+        metricsHistoryService.record(published, System.currentTimeMillis());
+        publishMetricChanges(published);
+    }
+
+    private void publishMetricChanges(SystemInfo info) {
+        notifyIfChanged(0, "cpuTemperature", info.getCpuTemperature(), temperatureThreshold);
+        notifyIfChanged(1, "cpuUsage", info.getCpuUsage(), cpuUsageThreshold);
+        notifyIfChanged(2, "memoryUsage", info.getMemoryUsage(), memoryUsageThreshold);
+        notifyIfChanged(3, "diskUsage", info.getDiskUsage(), diskUsageThreshold);
+    }
+
+    private void notifyIfChanged(int index, String metric, double value, double threshold) {
+        double last = lastNotified[index];
+        if (Double.isNaN(last) || Math.abs(value - last) >= threshold) {
+            lastNotified[index] = value;
+            eventBus.publish(DeviceEvent.metric(metric, value));
+        }
     }
 
     private double getCpuTemperature() {
+        if (!thermalZoneAvailable) {
+            return 0.0;
+        }
         try {
-            String result = executeCommand("cat /sys/class/thermal/thermal_zone0/temp");
-            if (result != null && !result.trim().isEmpty()) {
+            String result = readFile(thermalZone);
+            if (!result.isEmpty()) {
                 // Temperatura in milligradi, converti in gradi Celsius
-                double temp = Double.parseDouble(result.trim()) / 1000.0;
+                double temp = Double.parseDouble(result) / 1000.0;
                 return Math.round(temp * 10.0) / 10.0; // Arrotonda a 1 decimale
             }
         } catch (Exception e) {
-            System.err.println("Errore lettura temperatura: " + e.getMessage());
+            temperatureProbe.error();
+            log.warn("Errore lettura temperatura: {}", e.getMessage());
         }
         return 0.0;
     }
 
-    private double getCpuUsage() {
+    private void updateCpuUsage(SystemInfo.Builder info) {
         try {
-            // Comando per ottenere utilizzo CPU
-            String result = executeCommand("top -bn1 | grep load | awk '{printf \"%.2f\", $(NF-2)}'");
-            if (result != null && !result.trim().isEmpty()) {
-                return Double.parseDouble(result.trim());
+            if (!cpuUsageCalculator.sample()) {
+                return; // primo campione: nessun delta disponibile
+            }
+            int cores = cpuUsageCalculator.getCoreCount();
+            double[] coreUsage = new double[cores];
+            double[] coreIowait = new double[cores];
+            double[] coreIrq = new double[cores];
+            cpuUsageCalculator.copyCoreBusy(coreUsage);
+            cpuUsageCalculator.copyCoreIowait(coreIowait);
+            cpuUsageCalculator.copyCoreIrq(coreIrq);
+            for (int i = 0; i < cores; i++) {
+                coreUsage[i] = round1(coreUsage[i]);
+                coreIowait[i] = round1(coreIowait[i]);
+                coreIrq[i] = round1(coreIrq[i]);
             }
+            info.cpuUsage(round1(cpuUsageCalculator.getTotalBusy()))
+                    .cpuIowait(round1(cpuUsageCalculator.getTotalIowait()))
+                    .cpuIrq(round1(cpuUsageCalculator.getTotalIrq()))
+                    .cpuCoreUsage(coreUsage)
+                    .cpuCoreIowait(coreIowait)
+                    .cpuCoreIrq(coreIrq);
         } catch (Exception e) {
-            System.err.println("Errore lettura CPU usage: " + e.getMessage());
+            cpuProbe.error();
+            log.warn("Errore lettura CPU usage: {}", e.getMessage());
         }
-        return 0.0;
+    }
+
+    private static double round1(double value) {
+        return Math.round(value * 10.0) / 10.0;
     }
 
     private double getMemoryUsage() {
         try {
-            String result = executeCommand("free | grep Mem | awk '{printf(\"%.1f\", $3/$2 * 100.0)}'");
-            if (result != null && !result.trim().isEmpty()) {
-                return Double.parseDouble(result.trim());
+            long total = -1;
+            long available = -1;
+            for (String line : Files.readAllLines(procMeminfo, StandardCharsets.US_ASCII)) {
+                if (line.startsWith("MemTotal:")) {
+                    total = parseMeminfoValue(line);
+                } else if (line.startsWith("MemAvailable:")) {
+                    available = parseMeminfoValue(line);
+                }
+                if (total >= 0 && available >= 0) {
+                    break;
+                }
+            }
+            if (total > 0 && available >= 0) {
+                double usage = (total - available) * 100.0 / total;
+                return Math.round(usage * 10.0) / 10.0;
             }
         } catch (Exception e) {
-            System.err.println("Errore lettura memoria: " + e.getMessage());
+            memoryProbe.error();
+            log.warn("Errore lettura memoria: {}", e.getMessage());
         }
         return 0.0;
     }
 
     private double getDiskUsage() {
         try {
-            String result = executeCommand("df -h / | awk 'FNR==2{print $5}' | sed 's/%//g'");
-            if (result != null && !result.trim().isEmpty()) {
-                return Double.parseDouble(result.trim());
+            // FileStore usa statvfs: stesso calcolo di df (used / (used + avail))
+            FileStore store = Files.getFileStore(ROOT_FS);
+            long used = store.getTotalSpace() - store.getUnallocatedSpace();
+            long available = store.getUsableSpace();
+            if (used + available > 0) {
+                return Math.ceil(used * 100.0 / (used + available));
             }
         } catch (Exception e) {
-            System.err.println("Errore lettura disco: " + e.getMessage());
+            diskProbe.error();
+            log.warn("Errore lettura disco: {}", e.getMessage());
         }
         return 0.0;
     }
 
     private long getUptime() {
         try {
-            String result = executeCommand("cat /proc/uptime | awk '{print $1}'");
-            if (result != null && !result.trim().isEmpty()) {
-                return (long) Double.parseDouble(result.trim());
+            String result = readFile(procUptime);
+            if (!result.isEmpty()) {
+                return (long) Double.parseDouble(result.substring(0, result.indexOf(' ')));
             }
         } catch (Exception e) {
-            System.err.println("Errore lettura uptime: " + e.getMessage());
+            uptimeProbe.error();
+            log.warn("Errore lettura uptime: {}", e.getMessage());
         }
         return 0L;
     }
 
     private String getKernelVersion() {
         try {
-            String result = executeCommand("uname -r");
-            return result != null ? result.trim() : "Unknown";
+            String result = readFile(kernelOsrelease);
+            return !result.isEmpty() ? result : System.getProperty("os.version", "Unknown");
         } catch (Exception e) {
-            System.err.println("Errore lettura kernel version: " + e.getMessage());
-            return "Unknown";
+            log.warn("Errore lettura kernel version: {}", e.getMessage());
+            return System.getProperty("os.version", "Unknown");
         }
     }
 
-    private String executeCommand(String command) throws IOException, InterruptedException {
-        Process process = Runtime.getRuntime().exec(new String[]{"bash", "-c", command});
-        process.waitFor();
-        
-        byte[] output = process.getInputStream().readAllBytes();
-        return new String(output);
+    private String readFile(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.US_ASCII).trim();
+    }
+
+    private long parseMeminfoValue(String line) {
+        // Formato: "MemTotal:        3884120 kB"
+        int start = line.indexOf(':') + 1;
+        int end = line.lastIndexOf(' ');
+        return Long.parseLong(line.substring(start, end).trim());
     }
 
     // Formatta uptime in formato leggibile
@@ -135,4 +347,33 @@ public class SystemMonitorService {
             return minutes + "m";
         }
     }
-}
\ No newline at end of file
+    /**
+     * Metriche di una sonda: timer con la durata, contatore degli errori
+     */
+    private static final class Probe {
+        private final Timer timer;
+        private final Counter errors;
+
+        Probe(MeterRegistry registry, String name) {
+            this.timer = Timer.builder("system.monitor.probe")
+                    .description("Durata della lettura di una sonda di sistema")
+                    .tag("probe", name)
+                    .register(registry);
+            this.errors = Counter.builder("system.monitor.probe.errors")
+                    .description("Letture di una sonda di sistema fallite")
+                    .tag("probe", name)
+                    .register(registry);
+        }
+
+        // Registra la durata dall'istante indicato e restituisce l'istante corrente
+        long record(long startNanos) {
+            long now = System.nanoTime();
+            timer.record(now - startNanos, TimeUnit.NANOSECONDS);
+            return now;
+        }
+
+        void error() {
+            errors.increment();
+        }
+    }
+}
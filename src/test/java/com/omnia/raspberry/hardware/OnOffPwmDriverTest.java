@@ -0,0 +1,39 @@
+package com.omnia.raspberry.hardware;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OnOffPwmDriverTest {
+
+    @Test
+    void switchesLineAtThresholdAndWritesOnlyOnChange() throws Exception {
+        SimulatedGpioLineDriver lines = new SimulatedGpioLineDriver();
+        lines.claimOutput(12, false);
+        OnOffPwmDriver driver = new OnOffPwmDriver(lines, 12);
+
+        driver.setDutyCycle(30);
+        assertFalse(lines.read(12));
+        driver.setDutyCycle(40);
+        driver.setDutyCycle(50);
+        assertTrue(lines.read(12));
+        driver.setDutyCycle(100);
+        assertEquals(100.0, driver.getDutyCycle());
+        assertEquals(2L, driver.getStats().get("writes"));
+        assertEquals(100.0, driver.getStats().get("achievedDutyCycle"));
+
+        driver.setDutyCycle(49);
+        assertFalse(lines.read(12));
+        assertEquals(49.0, driver.getDutyCycle());
+    }
+
+    @Test
+    void softwarePwmRefusesForkPerWriteDriver() {
+        assertFalse(SoftwarePwmDriver.supports(new GpiosetLineDriver()));
+        assertTrue(SoftwarePwmDriver.supports(new SimulatedGpioLineDriver()));
+        assertThrows(IllegalArgumentException.class, () -> new SoftwarePwmDriver(new GpiosetLineDriver(), 12, 100));
+    }
+}
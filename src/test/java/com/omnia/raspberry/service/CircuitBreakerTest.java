@@ -0,0 +1,85 @@
+package com.omnia.raspberry.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensAfterThresholdConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, CircuitBreaker.State.CLOSED);
+
+        assertFalse(breaker.recordFailure());
+        assertFalse(breaker.recordFailure());
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.recordFailure());
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(1, breaker.getTransitions());
+        // Già aperto: altri fallimenti non producono nuove transizioni
+        assertFalse(breaker.recordFailure());
+        assertEquals(1, breaker.getTransitions());
+    }
+
+    @Test
+    void successResetsConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, CircuitBreaker.State.CLOSED);
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        assertFalse(breaker.recordFailure());
+        assertFalse(breaker.recordFailure());
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getTransitions());
+    }
+
+    @Test
+    void probeSuccessClosesFromHalfOpen() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, CircuitBreaker.State.OPEN);
+
+        assertTrue(breaker.tryHalfOpen());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertFalse(breaker.tryHalfOpen());
+
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertEquals(2, breaker.getTransitions());
+    }
+
+    @Test
+    void singleProbeFailureReopensFromHalfOpen() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, CircuitBreaker.State.OPEN);
+
+        breaker.tryHalfOpen();
+        assertTrue(breaker.recordFailure());
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getTransitions());
+    }
+
+    @Test
+    void halfOpenOnlyFromOpen() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, CircuitBreaker.State.CLOSED);
+
+        assertFalse(breaker.tryHalfOpen());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getTransitions());
+    }
+
+    @Test
+    void thresholdBelowOneBehavesAsOne() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 0, CircuitBreaker.State.CLOSED);
+
+        assertTrue(breaker.recordFailure());
+        assertEquals(1, breaker.toMap().get("failureThreshold"));
+        assertEquals("OPEN", breaker.toMap().get("state"));
+    }
+}
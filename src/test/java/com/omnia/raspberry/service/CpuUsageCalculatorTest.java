@@ -0,0 +1,95 @@
+package com.omnia.raspberry.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CpuUsageCalculatorTest {
+
+    @TempDir
+    Path dir;
+
+    private Path stat;
+    private CpuUsageCalculator calculator;
+
+    @BeforeEach
+    void setUp() {
+        stat = dir.resolve("stat");
+        calculator = new CpuUsageCalculator(stat);
+    }
+
+    @AfterEach
+    void tearDown() {
+        calculator.close();
+    }
+
+    @Test
+    void percentagesComeFromJiffiesDeltas() throws IOException {
+        //            user nice system idle iowait irq softirq steal guest guest_nice
+        writeStat("cpu  1000 0 500 8000 100 50 50 0 0 0",
+                  "cpu0 500 0 250 4000 50 25 25 0 0 0",
+                  "cpu1 500 0 250 4000 50 25 25 0 0 0");
+        assertFalse(calculator.sample());
+        assertEquals(2, calculator.getCoreCount());
+
+        // Delta totale 100 jiffies: 30 user, 10 system, 50 idle, 5 iowait, 3 irq, 2 softirq
+        // cpu0 tutto occupato, cpu1 tutto idle
+        writeStat("cpu  1030 0 510 8050 105 53 52 0 0 0",
+                  "cpu0 540 0 260 4000 50 25 25 0 0 0",
+                  "cpu1 500 0 250 4050 50 25 25 0 0 0");
+        assertTrue(calculator.sample());
+
+        assertEquals(45.0, calculator.getTotalBusy(), 1e-9);
+        assertEquals(5.0, calculator.getTotalIowait(), 1e-9);
+        assertEquals(5.0, calculator.getTotalIrq(), 1e-9);
+        double[] cores = new double[2];
+        calculator.copyCoreBusy(cores);
+        assertArrayEquals(new double[]{100.0, 0.0}, cores, 1e-9);
+    }
+
+    @Test
+    void unchangedCountersGiveZeroInsteadOfNaN() throws IOException {
+        writeStat("cpu  100 0 100 800 0 0 0 0 0 0",
+                  "cpu0 100 0 100 800 0 0 0 0 0 0");
+        calculator.sample();
+        assertTrue(calculator.sample());
+
+        assertEquals(0.0, calculator.getTotalBusy());
+        assertEquals(0.0, calculator.getTotalIowait());
+    }
+
+    @Test
+    void coreHotplugRestartsFromNewBaseline() throws IOException {
+        writeStat("cpu  100 0 100 800 0 0 0 0 0 0",
+                  "cpu0 100 0 100 800 0 0 0 0 0 0");
+        calculator.sample();
+        writeStat("cpu  200 0 100 900 0 0 0 0 0 0",
+                  "cpu0 100 0 100 850 0 0 0 0 0 0",
+                  "cpu1 100 0 0 50 0 0 0 0 0 0");
+
+        // Cambio numero di righe: il campione fa da nuova base, nessun delta contro i vecchi array
+        assertFalse(calculator.sample());
+        assertEquals(2, calculator.getCoreCount());
+
+        writeStat("cpu  250 0 100 950 0 0 0 0 0 0",
+                  "cpu0 100 0 100 900 0 0 0 0 0 0",
+                  "cpu1 150 0 0 50 0 0 0 0 0 0");
+        assertTrue(calculator.sample());
+        assertEquals(50.0, calculator.getTotalBusy(), 1e-9);
+    }
+
+    // Stesso file riscritto sul posto: il calcolatore lo tiene aperto e rilegge con seek(0)
+    private void writeStat(String... cpuLines) throws IOException {
+        Files.writeString(stat, String.join("\n", cpuLines) + "\nintr 12345 0 0\nctxt 67890\n");
+    }
+}
@@ -0,0 +1,121 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.model.DeviceEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeviceEventBusTest {
+
+    private final DeviceEventBus bus = new DeviceEventBus(4, false);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        bus.cleanup();
+    }
+
+    @Test
+    void stalledSubscribersDoNotDelayTheOthers() throws Exception {
+        // Due client SSE bloccati sulla send, come con il vecchio pool da 2 thread
+        CountDownLatch stalled = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            bus.subscribe("slow-" + i, event -> {
+                stalled.countDown();
+                awaitRelease();
+            });
+        }
+        List<Object> received = new CopyOnWriteArrayList<>();
+        bus.subscribe("rules", event -> received.add(event.getValue()));
+
+        bus.publish(DeviceEvent.pin(16, true));
+        assertTrue(stalled.await(2, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) {
+            bus.publish(DeviceEvent.metric("cpuUsage", i));
+        }
+
+        await(() -> received.size() == 4);
+        assertEquals(List.of(true, 0.0, 1.0, 2.0), received);
+    }
+
+    @Test
+    void slowSubscriberOnlyDropsItsOwnOldestEvents() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        List<Object> slowReceived = new CopyOnWriteArrayList<>();
+        DeviceEventBus.Subscription slow = bus.subscribe("slow", 2, event -> {
+            started.countDown();
+            awaitRelease();
+            slowReceived.add(event.getValue());
+        });
+        List<Object> fastReceived = new CopyOnWriteArrayList<>();
+        DeviceEventBus.Subscription fast = bus.subscribe("fast", event -> fastReceived.add(event.getValue()));
+
+        bus.publish(DeviceEvent.metric("m", 0));
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        for (int i = 1; i <= 5; i++) {
+            bus.publish(DeviceEvent.metric("m", i));
+            // Il client veloce consuma prima del prossimo evento: niente drop per lui
+            int expected = i + 1;
+            await(() -> fastReceived.size() == expected);
+        }
+        release.countDown();
+
+        await(() -> slowReceived.size() == 3);
+        // Il primo era già in consegna, poi restano solo gli ultimi 2 in coda
+        assertEquals(List.of(0.0, 4.0, 5.0), slowReceived);
+        assertEquals(3, slow.getDropped());
+        assertEquals(0, fast.getDropped());
+    }
+
+    @Test
+    void failingSubscriberIsRemoved() throws Exception {
+        DeviceEventBus.Subscription broken = bus.subscribe("broken", event -> {
+            throw new IllegalStateException("client disconnesso");
+        });
+        assertEquals(1, bus.getSubscriberCount());
+
+        bus.publish(DeviceEvent.pin(16, true));
+
+        await(broken::isClosed);
+        assertEquals(0, bus.getSubscriberCount());
+    }
+
+    @Test
+    void closeStopsDelivery() throws Exception {
+        List<Object> received = new CopyOnWriteArrayList<>();
+        DeviceEventBus.Subscription subscription = bus.subscribe("sse", event -> received.add(event.getValue()));
+
+        subscription.close();
+        bus.publish(DeviceEvent.pin(16, true));
+
+        Thread.sleep(50);
+        assertTrue(received.isEmpty());
+        assertFalse(bus.getSubscriberCount() > 0);
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condizione non raggiunta entro 2s");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.omnia.raspberry.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ESP01ServiceTest {
+
+    // Firmware "vecchio": solo GET /, /led e /relay
+    private HttpServer firmware;
+    private final AtomicInteger frameRequests = new AtomicInteger();
+    private final List<String> ledCommands = new CopyOnWriteArrayList<>();
+    private ESP01Service esp01;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        firmware = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        firmware.createContext("/", this::handle);
+        firmware.start();
+        esp01 = new ESP01Service("http://127.0.0.1:" + firmware.getAddress().getPort(),
+                2000, 2000, 3, 60000, 60000, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        esp01.stopProber();
+        firmware.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            String path = exchange.getRequestURI().getPath();
+            int status = 200;
+            if (path.equals("/led")) {
+                ledCommands.add(body);
+            } else if (path.equals("/frame")) {
+                frameRequests.incrementAndGet();
+                status = 404;
+            }
+            byte[] response = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        }
+    }
+
+    @Test
+    void frameFallsBackToLedCommandsWhenFirmwareHasNoFrameEndpoint() {
+        ReflectionTestUtils.setField(esp01, "ledFallbackIntervalNanos", 0L);
+        assertTrue(esp01.setFrame(new byte[]{10, 20, 30, 0, 0, (byte) 255}));
+
+        assertEquals(1, frameRequests.get());
+        assertFalse(esp01.isFrameEndpointSupported());
+        assertEquals(2, ledCommands.size());
+        assertTrue(ledCommands.get(0).contains("\"led\":0"));
+        assertTrue(ledCommands.get(0).contains("\"r\":10"));
+        assertTrue(ledCommands.get(0).contains("\"g\":20"));
+        assertTrue(ledCommands.get(0).contains("\"b\":30"));
+        assertTrue(ledCommands.get(1).contains("\"led\":1"));
+        assertTrue(ledCommands.get(1).contains("\"b\":255"));
+
+        // Frame successivo: niente più /frame e solo il LED cambiato
+        ledCommands.clear();
+        assertTrue(esp01.setFrame(new byte[]{10, 20, 30, 1, 2, 3}));
+        assertEquals(1, frameRequests.get());
+        assertEquals(1, ledCommands.size());
+        assertTrue(ledCommands.get(0).contains("\"led\":1"));
+    }
+
+    @Test
+    void fallbackFramesInsideTheIntervalAreCoalesced() throws Exception {
+        ReflectionTestUtils.setField(esp01, "frameEndpointSupported", false);
+        ReflectionTestUtils.setField(esp01, "ledFallbackIntervalNanos", TimeUnit.MILLISECONDS.toNanos(100));
+
+        // 30 frame di un effetto su 4 LED in rapida successione
+        for (int f = 0; f < 30; f++) {
+            byte v = (byte) f;
+            assertTrue(esp01.setFrame(new byte[]{v, v, v, v, v, v, v, v, v, v, v, v}));
+        }
+        // Primo frame subito, poi solo l'ultimo a fine intervallo
+        await(() -> ledCommands.size() == 8);
+        Thread.sleep(200);
+        assertEquals(8, ledCommands.size());
+        assertTrue(ledCommands.get(7).contains("\"led\":3"));
+        assertTrue(ledCommands.get(7).contains("\"r\":29"));
+    }
+
+    @Test
+    void disabledFrameEndpointIsNeverTried() {
+        ReflectionTestUtils.setField(esp01, "frameEndpointSupported", false);
+
+        assertTrue(esp01.setFrame(new byte[]{1, 2, 3}));
+
+        assertEquals(0, frameRequests.get());
+        assertEquals(1, ledCommands.size());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condizione non raggiunta entro 2s");
+            Thread.sleep(5);
+        }
+    }
+}
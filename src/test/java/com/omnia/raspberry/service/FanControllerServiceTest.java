@@ -0,0 +1,120 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.model.SystemInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FanControllerServiceTest {
+
+    private GpioService gpioService;
+    private SystemMonitorService systemMonitorService;
+    private FanControllerService controller;
+
+    @BeforeEach
+    void setUp() {
+        gpioService = mock(GpioService.class);
+        systemMonitorService = mock(SystemMonitorService.class);
+        when(systemMonitorService.isTemperatureAvailable()).thenReturn(true);
+
+        controller = new FanControllerService();
+        ReflectionTestUtils.setField(controller, "gpioService", gpioService);
+        ReflectionTestUtils.setField(controller, "systemMonitorService", systemMonitorService);
+        ReflectionTestUtils.setField(controller, "initialMode", "auto");
+        ReflectionTestUtils.setField(controller, "curveSpec", "45:0,50:30,60:60,70:100");
+        ReflectionTestUtils.setField(controller, "hysteresis", 3.0);
+        ReflectionTestUtils.setField(controller, "maxStep", 10);
+        controller.initialize();
+    }
+
+    @Test
+    void dutyRampsTowardsTheCurveByMaxStep() {
+        temperature(60.0);
+
+        controller.control();
+        assertEquals(10, controller.getStatus().get("appliedDutyCycle"));
+        assertEquals(60, controller.getStatus().get("targetDutyCycle"));
+        for (int i = 0; i < 10; i++) {
+            controller.control();
+        }
+
+        assertEquals(60, controller.getStatus().get("appliedDutyCycle"));
+        verify(gpioService).setFanSpeed(10);
+        verify(gpioService).setFanSpeed(60);
+    }
+
+    @Test
+    void aboveLastPointJumpsToMaximumAndReportsItAsTarget() {
+        temperature(75.0);
+
+        controller.control();
+
+        verify(gpioService).setFanSpeed(100);
+        assertEquals(100, controller.getStatus().get("appliedDutyCycle"));
+        assertEquals(100, controller.getStatus().get("targetDutyCycle"));
+    }
+
+    @Test
+    void hysteresisHoldsSpeedUntilTemperatureDropsEnough() {
+        temperature(60.0);
+        for (int i = 0; i < 10; i++) {
+            controller.control();
+        }
+        assertEquals(60, controller.getStatus().get("appliedDutyCycle"));
+
+        // 58°C: la curva a 58+3 chiede 64, più del duty attuale → nessun rallentamento
+        temperature(58.0);
+        controller.control();
+        assertEquals(60, controller.getStatus().get("appliedDutyCycle"));
+
+        // 56°C: la curva a 59 chiede 57 → si scende
+        temperature(56.0);
+        controller.control();
+        assertEquals(57, controller.getStatus().get("appliedDutyCycle"));
+    }
+
+    @Test
+    void failedManualWriteKeepsAutomaticMode() {
+        doThrow(new RuntimeException("Ventola non disponibile")).when(gpioService).setFanSpeed(40);
+
+        assertThrows(RuntimeException.class, () -> controller.setManualSpeed(40));
+
+        assertEquals("auto", controller.getMode());
+        assertEquals(0, controller.getStatus().get("appliedDutyCycle"));
+    }
+
+    @Test
+    void manualSpeedSuspendsTheLoop() {
+        controller.setManualSpeed(40);
+        assertEquals("manual", controller.getMode());
+
+        temperature(75.0);
+        controller.control();
+
+        verify(gpioService, never()).setFanSpeed(100);
+        assertEquals(40, controller.getStatus().get("appliedDutyCycle"));
+    }
+
+    @Test
+    void missingSensorLeavesTheFanAlone() {
+        when(systemMonitorService.isTemperatureAvailable()).thenReturn(false);
+        temperature(75.0);
+
+        controller.control();
+
+        verify(gpioService, never()).setFanSpeed(anyInt());
+    }
+
+    private void temperature(double celsius) {
+        when(systemMonitorService.getSystemInfo()).thenReturn(SystemInfo.builder().cpuTemperature(celsius).build());
+    }
+}
@@ -0,0 +1,106 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.hardware.LedFrameSink;
+import com.omnia.raspberry.hardware.SimulatedGpioLineDriver;
+import com.omnia.raspberry.hardware.SimulatedPwmDriver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Readiness "gpio" durante e dopo il claim delle linee all'avvio
+ */
+class GpioHealthIndicatorTest {
+
+    private static final int RELAY_1 = 16;
+    private static final int BUZZER = 26;
+
+    private SlowDriver driver;
+    private GpioService gpioService;
+    private GpioHealthIndicator indicator;
+
+    @BeforeEach
+    void setUp() {
+        driver = new SlowDriver();
+        gpioService = new GpioService();
+        ReflectionTestUtils.setField(gpioService, "gpioLineDriver", driver);
+        ReflectionTestUtils.setField(gpioService, "eventBus", mock(DeviceEventBus.class));
+        ReflectionTestUtils.setField(gpioService, "ledFrameSink", mock(LedFrameSink.class));
+        ReflectionTestUtils.setField(gpioService, "fanPwmDriver", new SimulatedPwmDriver(25000));
+        ReflectionTestUtils.setField(gpioService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(gpioService, "initParallelism", 2);
+
+        indicator = new GpioHealthIndicator();
+        ReflectionTestUtils.setField(indicator, "gpioService", gpioService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        driver.release.countDown();
+        gpioService.cleanup();
+        driver.close();
+    }
+
+    @Test
+    void outOfServiceWhileClaimIsPending() throws Exception {
+        gpioService.initialize();
+        assertTrue(driver.blocked.await(2, TimeUnit.SECONDS));
+
+        Health health = indicator.health();
+
+        assertEquals(Status.OUT_OF_SERVICE, health.getStatus());
+        assertEquals(false, health.getDetails().get("ready"));
+        assertTrue((int) health.getDetails().get("pendingPins") >= 1);
+        assertEquals(driver.getName(), health.getDetails().get("driver"));
+    }
+
+    @Test
+    void upOnceAllLinesAreClaimedOrDiscarded() throws Exception {
+        gpioService.initialize();
+        driver.release.countDown();
+        gpioService.whenPinsReady().get(5, TimeUnit.SECONDS);
+
+        Health health = indicator.health();
+
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals(true, health.getDetails().get("ready"));
+        assertEquals(0, health.getDetails().get("pendingPins"));
+        // Un pin non reclamabile non blocca la readiness: viene solo disabilitato
+        assertEquals(1, health.getDetails().get("failedPins"));
+        assertEquals(2, health.getDetails().get("parallelism"));
+        assertTrue((long) health.getDetails().get("initMs") >= 0);
+    }
+
+    // Claim del relè bloccato finché il test non lo rilascia, buzzer non disponibile
+    private static class SlowDriver extends SimulatedGpioLineDriver {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void claimOutput(int line, boolean initialValue) throws IOException {
+            if (line == RELAY_1) {
+                blocked.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else if (line == BUZZER) {
+                throw new IOException("linea occupata");
+            }
+            super.claimOutput(line, initialValue);
+        }
+    }
+}
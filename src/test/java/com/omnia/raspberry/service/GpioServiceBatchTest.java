@@ -0,0 +1,144 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.hardware.LedFrameSink;
+import com.omnia.raspberry.hardware.SimulatedGpioLineDriver;
+import com.omnia.raspberry.hardware.SimulatedPwmDriver;
+import com.omnia.raspberry.model.DeviceEvent;
+import com.omnia.raspberry.model.GpioBatchResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Scrittura batch a maschera di bit (POST /api/gpio/batch)
+ */
+class GpioServiceBatchTest {
+
+    private static final int RELAY_1 = 16;
+    private static final int RELAY_2 = 20;
+    private static final int BUZZER = 26;
+
+    private FlakyDriver driver;
+    private DeviceEventBus eventBus;
+    private GpioService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        driver = new FlakyDriver();
+        eventBus = mock(DeviceEventBus.class);
+        service = new GpioService();
+        ReflectionTestUtils.setField(service, "gpioLineDriver", driver);
+        ReflectionTestUtils.setField(service, "eventBus", eventBus);
+        ReflectionTestUtils.setField(service, "ledFrameSink", mock(LedFrameSink.class));
+        ReflectionTestUtils.setField(service, "fanPwmDriver", new SimulatedPwmDriver(25000));
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        service.initialize();
+        service.whenPinsReady().get(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.cleanup();
+        driver.close();
+    }
+
+    @Test
+    void validPinsAreWrittenInOneOperationDespiteInvalidOnes() throws Exception {
+        Map<Integer, Boolean> states = new LinkedHashMap<>();
+        states.put(RELAY_1, true);
+        states.put(21, true);        // PIR: INPUT
+        states.put(12, true);        // ventola: PWM
+        states.put(40, true);        // fuori dal banco
+        states.put(-1, false);
+        states.put(RELAY_2, null);   // stato mancante
+        states.put(BUZZER, true);
+
+        GpioBatchResult result = service.applyBatch(states);
+
+        assertFalse(result.isSuccess());
+        assertEquals(Map.of(RELAY_1, true, BUZZER, true), result.getApplied());
+        assertEquals(List.of(21, 12, 40, -1, RELAY_2), List.copyOf(result.getErrors().keySet()));
+        assertEquals(1, result.getHardwareWrites());
+        assertEquals(1, driver.batchWrites);
+        assertTrue(driver.read(RELAY_1));
+        assertTrue(driver.read(BUZZER));
+        assertFalse(driver.read(RELAY_2));
+        assertTrue(service.getGpioPin(RELAY_1).isState());
+        assertFalse(service.getGpioPin(RELAY_2).isState());
+    }
+
+    @Test
+    void onlyInvalidPinsSkipTheDriver() {
+        GpioBatchResult result = service.applyBatch(Map.of(21, true, 40, false));
+
+        assertTrue(result.getApplied().isEmpty());
+        assertEquals(2, result.getErrors().size());
+        assertEquals(0, result.getHardwareWrites());
+        assertEquals(0, driver.batchWrites);
+    }
+
+    @Test
+    void pinsAlreadySetAreRewrittenWithoutDuplicateEvents() throws Exception {
+        service.setDigitalPin(RELAY_1, true);
+        clearInvocations(eventBus);
+
+        Map<Integer, Boolean> states = new HashMap<>();
+        states.put(RELAY_1, true);
+        states.put(RELAY_2, true);
+        GpioBatchResult result = service.applyBatch(states);
+
+        assertTrue(result.isSuccess());
+        assertEquals(Map.of(RELAY_1, true, RELAY_2, true), result.getApplied());
+        ArgumentCaptor<DeviceEvent> events = ArgumentCaptor.forClass(DeviceEvent.class);
+        verify(eventBus, atLeastOnce()).publish(events.capture());
+        assertEquals(List.of(String.valueOf(RELAY_2)), events.getAllValues().stream().map(DeviceEvent::getKey).toList());
+    }
+
+    @Test
+    void driverFailureLeavesModelUntouched() {
+        driver.failBatch = true;
+
+        assertThrows(RuntimeException.class, () -> service.applyBatch(Map.of(RELAY_1, true, RELAY_2, true)));
+
+        assertFalse(service.getGpioPin(RELAY_1).isState());
+        assertFalse(service.getGpioPin(RELAY_2).isState());
+        verify(eventBus, never()).publish(any());
+        // I lock dei pin sono stati rilasciati: una scrittura singola non resta bloccata
+        assertTrue(service.setDigitalPin(RELAY_1, true));
+    }
+
+    private static class FlakyDriver extends SimulatedGpioLineDriver {
+        volatile boolean failBatch;
+        volatile int batchWrites;
+
+        @Override
+        public void writeLines(long highMask, long lowMask) throws IOException {
+            if (failBatch) {
+                throw new IOException("guasto simulato");
+            }
+            batchWrites++;
+            super.writeLines(highMask, lowMask);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.hardware.LedFrameSink;
+import com.omnia.raspberry.hardware.SimulatedGpioLineDriver;
+import com.omnia.raspberry.hardware.SimulatedPwmDriver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Fallback GPIO della LED Strip con ESP-01S non disponibile (sink che rifiuta i frame)
+ */
+class GpioServiceLedFallbackTest {
+
+    private static final int STRIP_PIN = 18;
+
+    private SimulatedGpioLineDriver driver;
+    private GpioService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        driver = new SimulatedGpioLineDriver();
+        service = new GpioService();
+        ReflectionTestUtils.setField(service, "gpioLineDriver", driver);
+        ReflectionTestUtils.setField(service, "eventBus", mock(DeviceEventBus.class));
+        ReflectionTestUtils.setField(service, "ledFrameSink", new RejectingSink());
+        ReflectionTestUtils.setField(service, "fanPwmDriver", new SimulatedPwmDriver(25000));
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        service.initialize();
+        service.whenPinsReady().get(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.cleanup();
+        driver.close();
+    }
+
+    @Test
+    void fallbackKeepsModelAlignedWithLine() throws Exception {
+        service.setLedStripFrame(frame(255));
+        await(() -> lineLevel() && modelState());
+
+        service.setLedStripFrame(frame(0));
+        await(() -> !lineLevel() && !modelState());
+    }
+
+    @Test
+    void togglesInterleavedWithFlushNeverDesyncModelAndLine() throws Exception {
+        List<Thread> togglers = new ArrayList<>();
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                while (System.nanoTime() < end) {
+                    service.toggleDigitalPin(STRIP_PIN);
+                }
+            });
+            togglers.add(thread);
+            thread.start();
+        }
+        int i = 0;
+        while (System.nanoTime() < end) {
+            service.setLedStripFrame(frame(i++ % 2 == 0 ? 255 : 0));
+            Thread.sleep(5);
+        }
+        for (Thread thread : togglers) {
+            thread.join();
+        }
+        // Lascia completare l'ultimo flush
+        Thread.sleep(100);
+        assertEquals(lineLevel(), modelState());
+    }
+
+    @Test
+    void effectWithUnreachableSinkFallsBackToStaticFrame() throws Exception {
+        service.setLedStripEffect("breathe", 50, 255, 0, 0);
+        assertEquals("breathe", service.getGpioPin(STRIP_PIN).getEffect());
+
+        // ~1 s di frame rifiutati: effetto fermato, frame statico (tutto spento) via GPIO
+        await(() -> "static".equals(service.getGpioPin(STRIP_PIN).getEffect()) && !modelState());
+        assertEquals(lineLevel(), modelState());
+        assertEquals(false, service.getLedEffectStats().get("running"));
+    }
+
+    @Test
+    void colorComponentsOutsideByteRangeAreRejected() {
+        // 300 finirebbe sul filo come 44 dopo il cast a byte
+        assertThrows(RuntimeException.class, () -> service.setLedStripColor(0, 300, 0, 0));
+        assertThrows(RuntimeException.class, () -> service.setLedStripColor(0, 0, -1, 0));
+        assertThrows(RuntimeException.class, () -> service.setLedStripColor(0, 0, 0, 256));
+        service.setLedStripColor(0, 255, 0, 0);
+    }
+
+    private byte[] frame(int value) {
+        byte[] frame = new byte[service.getLedCount() * 3];
+        Arrays.fill(frame, (byte) value);
+        return frame;
+    }
+
+    private boolean lineLevel() {
+        try {
+            return driver.read(STRIP_PIN);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean modelState() {
+        return service.getGpioPin(STRIP_PIN).isState();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condizione non raggiunta entro 2s");
+            Thread.sleep(5);
+        }
+    }
+
+    private static class RejectingSink implements LedFrameSink {
+        @Override
+        public String getName() {
+            return "offline";
+        }
+
+        @Override
+        public boolean pushFrame(byte[] frame) {
+            return false;
+        }
+
+        @Override
+        public boolean setPower(boolean isOn) {
+            return false;
+        }
+    }
+}
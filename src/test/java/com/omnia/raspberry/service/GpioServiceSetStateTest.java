@@ -0,0 +1,96 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.hardware.LedFrameSink;
+import com.omnia.raspberry.hardware.SimulatedGpioLineDriver;
+import com.omnia.raspberry.hardware.SimulatedPwmDriver;
+import com.omnia.raspberry.model.DeviceEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Impostazione idempotente dello stato (PUT /api/gpio/pin/{pinNumber}/state)
+ */
+class GpioServiceSetStateTest {
+
+    private static final int FAN = 12;
+    private static final int RELAY_1 = 16;
+    private static final int PIR = 21;
+
+    private SimulatedGpioLineDriver driver;
+    private DeviceEventBus eventBus;
+    private GpioService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        driver = new SimulatedGpioLineDriver();
+        eventBus = mock(DeviceEventBus.class);
+        service = new GpioService();
+        ReflectionTestUtils.setField(service, "gpioLineDriver", driver);
+        ReflectionTestUtils.setField(service, "eventBus", eventBus);
+        ReflectionTestUtils.setField(service, "ledFrameSink", mock(LedFrameSink.class));
+        ReflectionTestUtils.setField(service, "fanPwmDriver", new SimulatedPwmDriver(25000));
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        service.initialize();
+        service.whenPinsReady().get(5, TimeUnit.SECONDS);
+        clearInvocations(eventBus);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.cleanup();
+        driver.close();
+    }
+
+    @Test
+    void repeatedStateIsNotWrittenAgain() {
+        assertTrue(service.setDigitalPin(RELAY_1, true));
+        assertFalse(service.setDigitalPin(RELAY_1, true));
+
+        assertTrue(service.getGpioPin(RELAY_1).isState());
+        verify(eventBus, times(1)).publish(any(DeviceEvent.class));
+    }
+
+    @Test
+    void fanOnFromPartialDutyGoesToFullSpeed() {
+        service.setFanSpeed(40);
+        assertTrue(service.getGpioPin(FAN).isState());
+
+        assertTrue(service.setDigitalPin(FAN, true));
+
+        assertEquals(100, service.getFanDutyCycle());
+        assertFalse(service.setDigitalPin(FAN, true));
+    }
+
+    @Test
+    void fanOffFromPartialDutyStopsIt() {
+        service.setFanSpeed(40);
+
+        assertTrue(service.setDigitalPin(FAN, false));
+
+        assertEquals(0, service.getFanDutyCycle());
+        assertFalse(service.getGpioPin(FAN).isState());
+        assertFalse(service.setDigitalPin(FAN, false));
+    }
+
+    @Test
+    void inputPinIsRejected() {
+        assertThrows(RuntimeException.class, () -> service.setDigitalPin(PIR, true));
+        verify(eventBus, never()).publish(any(DeviceEvent.class));
+    }
+}
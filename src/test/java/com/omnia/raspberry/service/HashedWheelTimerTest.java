@@ -0,0 +1,104 @@
+package com.omnia.raspberry.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedWheelTimerTest {
+
+    private static final long TICK_MS = 10;
+
+    private HashedWheelTimer timer;
+
+    @AfterEach
+    void tearDown() {
+        if (timer != null) {
+            timer.close();
+        }
+    }
+
+    @Test
+    void wheelSizeIsRoundedUpToPowerOfTwo() {
+        timer = new HashedWheelTimer("test-wheel", TICK_MS, TimeUnit.MILLISECONDS, 5);
+        assertEquals(8, timer.getWheelSize());
+        timer.close();
+        timer = new HashedWheelTimer("test-wheel", TICK_MS, TimeUnit.MILLISECONDS, 8);
+        assertEquals(8, timer.getWheelSize());
+    }
+
+    @Test
+    void timeoutSeveralRoundsAheadWaitsForItsExpireTick() throws Exception {
+        // Ruota da 4 bucket: 150 ms = 15 tick, il bucket viene visitato 3 volte prima della scadenza
+        timer = new HashedWheelTimer("test-wheel", TICK_MS, TimeUnit.MILLISECONDS, 4);
+        AtomicLong firedAfterNanos = new AtomicLong(-1);
+        long start = System.nanoTime();
+
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(
+                () -> firedAfterNanos.set(System.nanoTime() - start), 150, TimeUnit.MILLISECONDS);
+
+        await(timeout::isExpired);
+        assertTrue(firedAfterNanos.get() >= TimeUnit.MILLISECONDS.toNanos(150),
+                "scaduto in anticipo: " + firedAfterNanos.get() / 1_000_000 + " ms");
+        assertEquals(0, timer.getActiveTimeouts());
+    }
+
+    @Test
+    void timeoutsFireInDeadlineOrder() throws Exception {
+        timer = new HashedWheelTimer("test-wheel", TICK_MS, TimeUnit.MILLISECONDS, 4);
+        List<Integer> fired = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+
+        timer.newTimeout(() -> { fired.add(3); done.countDown(); }, 90, TimeUnit.MILLISECONDS);
+        timer.newTimeout(() -> { fired.add(1); done.countDown(); }, 0, TimeUnit.MILLISECONDS);
+        timer.newTimeout(() -> { fired.add(2); done.countDown(); }, 45, TimeUnit.MILLISECONDS);
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 2, 3), fired);
+    }
+
+    @Test
+    void cancelledTimeoutNeverRuns() throws Exception {
+        timer = new HashedWheelTimer("test-wheel", TICK_MS, TimeUnit.MILLISECONDS, 4);
+        AtomicBoolean ran = new AtomicBoolean();
+
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(() -> ran.set(true), 30, TimeUnit.MILLISECONDS);
+        assertEquals(1, timer.getActiveTimeouts());
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertEquals(0, timer.getActiveTimeouts());
+
+        // Un timeout successivo fa girare la ruota oltre il bucket del cancellato
+        HashedWheelTimer.Timeout later = timer.newTimeout(() -> { }, 80, TimeUnit.MILLISECONDS);
+        await(later::isExpired);
+        assertFalse(ran.get());
+        assertTrue(timeout.isCancelled());
+        assertFalse(timeout.isExpired());
+    }
+
+    @Test
+    void closedTimerRejectsNewTimeouts() {
+        timer = new HashedWheelTimer("test-wheel", TICK_MS, TimeUnit.MILLISECONDS, 4);
+        timer.close();
+        assertThrows(IllegalStateException.class, () -> timer.newTimeout(() -> { }, 1, TimeUnit.MILLISECONDS));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condizione non raggiunta entro 2s");
+            Thread.sleep(5);
+        }
+    }
+}
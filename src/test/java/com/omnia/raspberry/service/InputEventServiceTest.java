@@ -0,0 +1,93 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.hardware.SimulatedGpioLineDriver;
+import com.omnia.raspberry.model.DeviceEvent;
+import com.omnia.raspberry.model.GpioPin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InputEventServiceTest {
+
+    private static final int PIR = 21;
+    private static final int DEBOUNCE_MS = 50;
+
+    private SimulatedGpioLineDriver driver;
+    private GpioService gpioService;
+    private InputEventService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        driver = new SimulatedGpioLineDriver();
+        driver.claimInput(PIR);
+        gpioService = mock(GpioService.class);
+        when(gpioService.getAllGpioPins()).thenReturn(List.of(new GpioPin(PIR, "PIR", "INPUT", "test")));
+        when(gpioService.whenPinsReady()).thenReturn(CompletableFuture.completedFuture(null));
+
+        service = new InputEventService();
+        ReflectionTestUtils.setField(service, "gpioLineDriver", driver);
+        ReflectionTestUtils.setField(service, "gpioService", gpioService);
+        ReflectionTestUtils.setField(service, "eventBus", mock(DeviceEventBus.class));
+        ReflectionTestUtils.setField(service, "debounceMillis", DEBOUNCE_MS);
+        ReflectionTestUtils.setField(service, "eventLogSize", 16);
+        service.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.cleanup();
+        driver.close();
+    }
+
+    @Test
+    void glitchInsideDebounceWindowIsRecoveredByTrailingRead() throws Exception {
+        driver.simulateInput(PIR, true);
+        driver.simulateInput(PIR, false);   // discesa dentro la finestra: scartata
+
+        await(() -> service.getRecentEvents(1).size() == 1
+                && Boolean.FALSE.equals(service.getRecentEvents(1).get(0).getValue()));
+        List<DeviceEvent> events = service.getRecentEvents(10);
+        assertEquals(2, events.size());
+        assertEquals(false, events.get(0).getValue());
+        assertEquals(true, events.get(1).getValue());
+        verify(gpioService, atLeastOnce()).updateInputState(PIR, false);
+
+        // Il fronte reale successivo non viene più scambiato per un duplicato
+        Thread.sleep(DEBOUNCE_MS * 2);
+        driver.simulateInput(PIR, true);
+        await(() -> Boolean.TRUE.equals(service.getRecentEvents(1).get(0).getValue()));
+        assertEquals(3, service.getRecentEvents(10).size());
+    }
+
+    @Test
+    void bounceEndingAtSameLevelPublishesNothingExtra() throws Exception {
+        driver.simulateInput(PIR, true);
+        driver.simulateInput(PIR, false);
+        driver.simulateInput(PIR, true);
+
+        Thread.sleep(DEBOUNCE_MS * 4);
+        List<DeviceEvent> events = service.getRecentEvents(10);
+        assertEquals(1, events.size());
+        assertEquals(true, events.get(0).getValue());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condizione non raggiunta entro 2s");
+            Thread.sleep(5);
+        }
+    }
+}
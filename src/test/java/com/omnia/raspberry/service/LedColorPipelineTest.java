@@ -0,0 +1,96 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.hardware.LedFrameSink;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LedColorPipelineTest {
+
+    @Test
+    void linearGammaAtFullBrightnessIsIdentity() {
+        RecordingSink sink = new RecordingSink();
+        LedColorPipeline pipeline = new LedColorPipeline(sink, 2, 1.0, 1.0, 1.0, false);
+        byte[] frame = {0, 1, (byte) 128, (byte) 200, (byte) 254, (byte) 255};
+
+        assertTrue(pipeline.pushFrame(frame));
+        assertArrayEquals(frame, sink.last);
+
+        pipeline.setBrightness(0);
+        pipeline.pushFrame(frame);
+        assertArrayEquals(new byte[6], sink.last);
+        assertEquals(0, pipeline.getBrightness());
+    }
+
+    @Test
+    void ditheringAveragesToTheFractionalValue() {
+        RecordingSink sink = new RecordingSink();
+        LedColorPipeline pipeline = new LedColorPipeline(sink, 1, 1.0, 1.0, 1.0, true);
+        pipeline.setBrightness(128);   // 255 → 128.0, 1 → ~0.5
+        byte[] frame = {1, 1, 1};
+
+        int sum = 0;
+        for (int i = 0; i < 100; i++) {
+            pipeline.pushFrame(frame);
+            sum += sink.last[0] & 0xFF;
+        }
+        assertEquals(50, sum, 1);
+    }
+
+    @Test
+    void brightnessDoesNotWaitForAFrameInFlight() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LedColorPipeline pipeline = new LedColorPipeline(new RecordingSink() {
+            @Override
+            public boolean pushFrame(byte[] frame) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            }
+        }, 1, 2.2, 2.2, 2.2, true);
+
+        CompletableFuture<Boolean> push = CompletableFuture.supplyAsync(() -> pipeline.pushFrame(new byte[3]));
+        assertTrue(entered.await(2, TimeUnit.SECONDS));
+        try {
+            CompletableFuture.runAsync(() -> pipeline.setBrightness(40)).get(1, TimeUnit.SECONDS);
+            assertEquals(40, CompletableFuture.supplyAsync(pipeline::getBrightness).get(1, TimeUnit.SECONDS));
+            byte[] target = new byte[3];
+            CompletableFuture.runAsync(() -> pipeline.apply(new byte[]{(byte) 255, 0, 0}, target, 3))
+                    .get(1, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+        }
+        assertTrue(push.get(2, TimeUnit.SECONDS));
+    }
+
+    private static class RecordingSink implements LedFrameSink {
+        byte[] last;
+
+        @Override
+        public String getName() {
+            return "test";
+        }
+
+        @Override
+        public boolean pushFrame(byte[] frame) {
+            last = frame.clone();
+            return true;
+        }
+
+        @Override
+        public boolean setPower(boolean isOn) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.effect.RainbowEffect;
+import com.omnia.raspberry.hardware.LedFrameSink;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LedEffectEngineTest {
+
+    private static final int LEDS = 10;
+
+    private final AtomicInteger sinkDownCalls = new AtomicInteger();
+    private LedEffectEngine engine;
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    void lateAndSlowFrameCountsOneMissedDeadline() {
+        int fps = 100;
+        engine = new LedEffectEngine(LEDS, fps, new TestSink(frame -> {
+            sleep(15); // più di un periodo da 10 ms
+            return true;
+        }), sinkDownCalls::incrementAndGet);
+        // Frame 0 partito con 5 periodi di ritardo e più lento di un periodo
+        ReflectionTestUtils.setField(engine, "effect", new RainbowEffect(50));
+        ReflectionTestUtils.setField(engine, "startNanos", System.nanoTime() - 50_000_000L);
+
+        ReflectionTestUtils.invokeMethod(engine, "renderFrame");
+
+        assertEquals(1L, engine.getStats().get("missedDeadlines"));
+    }
+
+    @Test
+    void effectStopsAfterOneSecondOfRejectedFrames() throws Exception {
+        AtomicInteger pushes = new AtomicInteger();
+        engine = new LedEffectEngine(LEDS, 50, new TestSink(frame -> {
+            pushes.incrementAndGet();
+            return false;
+        }), sinkDownCalls::incrementAndGet);
+
+        engine.start(new RainbowEffect(50));
+
+        await(() -> !engine.isRunning());
+        assertEquals(1, sinkDownCalls.get());
+        assertEquals(50, pushes.get());
+        assertEquals(50L, engine.getStats().get("failedPushes"));
+        assertEquals(1L, engine.getStats().get("sinkDownStops"));
+        assertEquals("static", engine.getStats().get("effect"));
+
+        // Nessun altro frame dopo lo stop
+        Thread.sleep(100);
+        assertEquals(50, pushes.get());
+    }
+
+    @Test
+    void intermittentFailuresKeepTheEffectRunning() throws Exception {
+        AtomicInteger pushes = new AtomicInteger();
+        // Un frame su due rifiutato: mai fps rifiuti consecutivi
+        engine = new LedEffectEngine(LEDS, 50, new TestSink(frame -> pushes.incrementAndGet() % 2 == 0),
+                sinkDownCalls::incrementAndGet);
+
+        engine.start(new RainbowEffect(50));
+
+        await(() -> pushes.get() >= 100);
+        assertTrue(engine.isRunning());
+        assertEquals(0, sinkDownCalls.get());
+        engine.stop();
+        assertFalse(engine.isRunning());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condizione non raggiunta entro 2s");
+            Thread.sleep(5);
+        }
+    }
+
+    private static class TestSink implements LedFrameSink {
+        private final Predicate<byte[]> push;
+
+        TestSink(Predicate<byte[]> push) {
+            this.push = push;
+        }
+
+        @Override
+        public String getName() {
+            return "test";
+        }
+
+        @Override
+        public boolean pushFrame(byte[] frame) {
+            return push.test(frame);
+        }
+
+        @Override
+        public boolean setPower(boolean isOn) {
+            return true;
+        }
+    }
+}
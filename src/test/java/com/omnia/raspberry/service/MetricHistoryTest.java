@@ -0,0 +1,113 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.model.HistoryPoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricHistoryTest {
+
+    private static final long SECOND = 1000L;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    // Inizio di un'ora qualsiasi, lontano dallo zero
+    private static final long T0 = 480_000L * HOUR;
+
+    private final MetricHistory history = new MetricHistory();
+
+    @Test
+    void secondRingOverwritesSlotAfterOneHour() {
+        history.record(T0, 10.0);
+        assertEquals(1, history.query(T0, T0, 1, 1).size());
+
+        // Stesso slot un'ora dopo: il vecchio secondo non è più leggibile
+        long wrapped = T0 + MetricHistory.SECOND_SLOTS * SECOND;
+        history.record(wrapped, 20.0);
+
+        assertTrue(history.query(T0, T0, 1, 1).isEmpty());
+        List<HistoryPoint> points = history.query(wrapped, wrapped, 1, 1);
+        assertEquals(1, points.size());
+        assertEquals(20.0, points.get(0).getAvg());
+    }
+
+    @Test
+    void secondTierAggregatesByStep() {
+        for (int i = 0; i < 20; i++) {
+            history.record(T0 + i * SECOND, i);
+        }
+
+        List<HistoryPoint> points = history.query(T0, T0 + 19 * SECOND, 1, 10);
+
+        assertEquals(2, points.size());
+        assertPoint(points.get(0), T0, 0.0, 9.0, 4.5);
+        assertPoint(points.get(1), T0 + 10 * SECOND, 10.0, 19.0, 14.5);
+    }
+
+    @Test
+    void minuteTierRollsUpSecondsIncludingCurrentMinute() {
+        // Minuto 0: 1..4, minuto 1 (ancora in corso): 10 e 20
+        history.record(T0, 1.0);
+        history.record(T0 + 10 * SECOND, 2.0);
+        history.record(T0 + 20 * SECOND, 3.0);
+        history.record(T0 + 30 * SECOND, 4.0);
+        history.record(T0 + MINUTE, 10.0);
+        history.record(T0 + MINUTE + 30 * SECOND, 20.0);
+
+        List<HistoryPoint> points = history.query(T0, T0 + 2 * MINUTE, 60, 60);
+
+        assertEquals(2, points.size());
+        assertPoint(points.get(0), T0, 1.0, 4.0, 2.5);
+        assertPoint(points.get(1), T0 + MINUTE, 10.0, 20.0, 15.0);
+
+        // Step di 2 minuti: min/max sull'intervallo, media delle medie al minuto
+        List<HistoryPoint> merged = history.query(T0, T0 + 2 * MINUTE, 60, 120);
+        assertEquals(1, merged.size());
+        assertPoint(merged.get(0), T0, 1.0, 20.0, 8.75);
+    }
+
+    @Test
+    void hourTierRollsUpMinutes() {
+        // Un campione al minuto: prima ora a 1.0, seconda ora 0..59 (in corso)
+        for (int m = 0; m < 60; m++) {
+            history.record(T0 + m * MINUTE, 1.0);
+        }
+        for (int m = 0; m < 60; m++) {
+            history.record(T0 + HOUR + m * MINUTE, m);
+        }
+
+        List<HistoryPoint> points = history.query(T0, T0 + 2 * HOUR, 3600, 3600);
+
+        assertEquals(2, points.size());
+        assertPoint(points.get(0), T0, 1.0, 1.0, 1.0);
+        // Ora in corso: incluso l'ultimo minuto, ancora nell'accumulatore dei minuti
+        assertPoint(points.get(1), T0 + HOUR, 0.0, 59.0, 29.5);
+    }
+
+    @Test
+    void firstMinuteOfNewHourIsVisibleInHourTier() {
+        history.record(T0 + 59 * MINUTE, 1.0);
+        history.record(T0 + HOUR, 7.0);
+
+        List<HistoryPoint> points = history.query(T0, T0 + HOUR, 3600, 3600);
+
+        assertEquals(2, points.size());
+        assertPoint(points.get(0), T0, 1.0, 1.0, 1.0);
+        assertPoint(points.get(1), T0 + HOUR, 7.0, 7.0, 7.0);
+    }
+
+    @Test
+    void emptyRangeReturnsNoPoints() {
+        history.record(T0, 5.0);
+        assertTrue(history.query(T0 + HOUR, T0 + 2 * HOUR, 60, 60).isEmpty());
+    }
+
+    private static void assertPoint(HistoryPoint point, long timestamp, double min, double max, double avg) {
+        assertEquals(timestamp, point.getTimestamp());
+        assertEquals(min, point.getMin());
+        assertEquals(max, point.getMax());
+        assertEquals(avg, point.getAvg());
+    }
+}
@@ -0,0 +1,85 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.model.HistoryPoint;
+import com.omnia.raspberry.model.SystemInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsHistoryServiceTest {
+
+    private static final long SECOND = 1000L;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    // Allineato all'ora
+    private static final long NOW = 500_000L * HOUR;
+
+    private MetricsHistoryService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new MetricsHistoryService();
+        // 4 giorni di campioni ogni 10 secondi
+        for (long t = NOW - 4 * DAY; t <= NOW; t += 10 * SECOND) {
+            service.record(SystemInfo.builder().cpuUsage(50.0).build(), t);
+        }
+    }
+
+    @Test
+    void recentWindowsUseTheFinestTierThatRetainsThem() {
+        assertEquals(1, service.selectTier(NOW - 30 * MINUTE, NOW, 1, NOW));
+        assertEquals(1, service.selectTier(NOW - HOUR, NOW, 1, NOW));
+        assertEquals(60, service.selectTier(NOW - 30 * MINUTE, NOW, 60, NOW));
+        assertEquals(60, service.selectTier(NOW - DAY, NOW, 60, NOW));
+        assertEquals(3600, service.selectTier(NOW - 2 * DAY, NOW, 60, NOW));
+        assertEquals(3600, service.selectTier(NOW - 30 * MINUTE, NOW, 3600, NOW));
+    }
+
+    @Test
+    void pastWindowsFallBackToACoarserTierByAge() {
+        // Ampiezza 30 minuti ma punto più vecchio oltre l'ora dei secondi
+        assertEquals(60, service.selectTier(NOW - 2 * HOUR, NOW - 90 * MINUTE, 1, NOW));
+        assertEquals(60, service.selectTier(NOW - HOUR - MINUTE, NOW - 30 * MINUTE, 1, NOW));
+        // Ampiezza 1 ora ma oltre le 24 ore dei minuti
+        assertEquals(3600, service.selectTier(NOW - 3 * DAY, NOW - 3 * DAY + HOUR, 60, NOW));
+        assertEquals(3600, service.selectTier(NOW - DAY - HOUR, NOW - DAY, 1, NOW));
+        assertEquals(60, service.selectTier(NOW - 23 * HOUR, NOW - 22 * HOUR, 1, NOW));
+    }
+
+    @Test
+    void secondTierQueryReturnsRawSamples() {
+        List<HistoryPoint> points = service.query("cpuUsage", NOW - 5 * MINUTE, NOW, 1, NOW);
+        assertEquals(31, points.size());
+        assertEquals(NOW - 5 * MINUTE, points.get(0).getTimestamp());
+        assertEquals(10 * SECOND, points.get(1).getTimestamp() - points.get(0).getTimestamp());
+        assertEquals(50.0, points.get(0).getAvg());
+    }
+
+    @Test
+    void shortWindowTwoHoursAgoIsReadFromMinuteTier() {
+        List<HistoryPoint> points = service.query("cpuUsage", NOW - 2 * HOUR, NOW - 90 * MINUTE, 1, NOW);
+        assertEquals(31, points.size());
+        assertEquals(MINUTE, points.get(1).getTimestamp() - points.get(0).getTimestamp());
+        assertEquals(50.0, points.get(0).getAvg());
+    }
+
+    @Test
+    void oneHourWindowThreeDaysAgoIsReadFromHourTier() {
+        List<HistoryPoint> points = service.query("cpuUsage", NOW - 3 * DAY, NOW - 3 * DAY + HOUR, 60, NOW);
+        assertEquals(2, points.size());
+        assertEquals(NOW - 3 * DAY, points.get(0).getTimestamp());
+        assertEquals(50.0, points.get(0).getAvg());
+    }
+
+    @Test
+    void windowOlderThanEveryTierIsEmpty() {
+        assertTrue(service.query("cpuUsage", NOW - 40 * DAY, NOW - 39 * DAY, 60, NOW).isEmpty());
+        assertFalse(service.query("cpuUsage", NOW - 29 * DAY, NOW, 3600, NOW).isEmpty());
+    }
+}
@@ -0,0 +1,135 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.model.GpioPin;
+import com.omnia.raspberry.model.PinPattern;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PinSequencerServiceTest {
+
+    private static final int PIN = 17;
+    private static final int OTHER_PIN = 27;
+
+    private GpioService gpioService;
+    private PinSequencerService sequencer;
+    // Scritture in ordine di completamento
+    private final List<Boolean> writes = new CopyOnWriteArrayList<>();
+    private final List<Boolean> otherWrites = new CopyOnWriteArrayList<>();
+    private final CountDownLatch writeStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseWrite = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        gpioService = mock(GpioService.class);
+        when(gpioService.getGpioPin(PIN)).thenReturn(new GpioPin(PIN, "Relay", "OUTPUT", "test"));
+        when(gpioService.getGpioPin(OTHER_PIN)).thenReturn(new GpioPin(OTHER_PIN, "LED", "OUTPUT", "test"));
+        // Il primo passo (ON) resta bloccato nel driver finché il test non lo rilascia
+        doAnswer(invocation -> {
+            boolean value = invocation.getArgument(1);
+            if (value) {
+                writeStarted.countDown();
+                releaseWrite.await(2, TimeUnit.SECONDS);
+            }
+            writes.add(value);
+            return true;
+        }).when(gpioService).setDigitalPin(eq(PIN), anyBoolean(), anyBoolean());
+        doAnswer(invocation -> {
+            writes.add(invocation.getArgument(1));
+            return true;
+        }).when(gpioService).setDigitalPin(eq(PIN), anyBoolean());
+        doAnswer(invocation -> {
+            otherWrites.add(invocation.getArgument(1));
+            return true;
+        }).when(gpioService).setDigitalPin(eq(OTHER_PIN), anyBoolean(), anyBoolean());
+
+        sequencer = new PinSequencerService();
+        ReflectionTestUtils.setField(sequencer, "gpioService", gpioService);
+        ReflectionTestUtils.setField(sequencer, "maxRepeat", 100);
+        ReflectionTestUtils.setField(sequencer, "writerThreads", 2);
+        sequencer.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseWrite.countDown();
+        sequencer.cleanup();
+    }
+
+    @Test
+    void slowWriteDoesNotBlockStatusOrStart() throws Exception {
+        sequencer.start(PIN, pattern(5, 5));
+        assertTrue(writeStarted.await(2, TimeUnit.SECONDS));
+
+        // Il worker è dentro il driver: lo stato deve restare leggibile
+        CompletableFuture<List<?>> status = CompletableFuture.supplyAsync(sequencer::getStatus);
+        assertEquals(1, status.get(1, TimeUnit.SECONDS).size());
+    }
+
+    @Test
+    void slowWriteOnOnePinDoesNotDelayOtherPatterns() throws Exception {
+        sequencer.start(PIN, pattern(5, 5));
+        assertTrue(writeStarted.await(2, TimeUnit.SECONDS));
+        // Un primo OFF può già essere passato se il writer è partito in ritardo
+        int completed = writes.size();
+
+        // Il pin 17 è fermo nel driver, il pattern sul 27 deve proseguire
+        sequencer.start(OTHER_PIN, pattern(5, 5));
+        await(() -> otherWrites.size() >= 10);
+        assertEquals(completed, writes.size());
+
+        // I passi del 17 arrivati nel frattempo sono fusi in un solo valore in attesa
+        releaseWrite.countDown();
+        await(() -> writes.size() >= completed + 2);
+        long coalesced = (long) sequencer.getStatus().get(0).get("coalesced");
+        assertTrue(coalesced > 0, "passi fusi: " + coalesced);
+    }
+
+    @Test
+    void stopDuringInFlightWriteLeavesPinOff() throws Exception {
+        sequencer.start(PIN, pattern(50, 50));
+        assertTrue(writeStarted.await(2, TimeUnit.SECONDS));
+
+        CompletableFuture<Boolean> stopped = CompletableFuture.supplyAsync(() -> sequencer.stop(PIN));
+        Thread.sleep(50);
+        releaseWrite.countDown();
+        assertTrue(stopped.get(2, TimeUnit.SECONDS));
+
+        await(() -> writes.size() >= 2);
+        Thread.sleep(150);
+        assertFalse(writes.get(writes.size() - 1), "stop() deve essere l'ultima scrittura: " + writes);
+        assertEquals(List.of(true, false), writes);
+    }
+
+    private static PinPattern pattern(long onMs, long offMs) {
+        PinPattern pattern = new PinPattern();
+        pattern.setDurationsMs(List.of(onMs, offMs));
+        pattern.setRepeat(0);
+        return pattern;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condizione non raggiunta entro 2s");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.model.GpioPin;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PinTableTest {
+
+    private final PinTable table = new PinTable();
+    private final ReentrantLock[] locks = (ReentrantLock[]) ReflectionTestUtils.getField(table, "locks");
+
+    @Test
+    void lockAllTakesPinsInAscendingOrder() throws Exception {
+        long mask = (1L << 3) | (1L << 5) | (1L << 7);
+        CountDownLatch acquired = new CountDownLatch(1);
+        table.lock(5);
+        Thread batch = new Thread(() -> {
+            table.lockAll(mask);
+            acquired.countDown();
+            table.unlockAll(mask);
+        });
+        batch.start();
+        try {
+            // Bloccato sul 5: il 3 è già preso, il 7 non ancora
+            await(() -> locks[5].hasQueuedThread(batch));
+            assertTrue(locks[3].isLocked());
+            assertFalse(locks[7].isLocked());
+        } finally {
+            table.unlock(5);
+        }
+
+        assertTrue(acquired.await(2, TimeUnit.SECONDS));
+        batch.join(2000);
+        for (ReentrantLock lock : locks) {
+            assertFalse(lock.isLocked());
+        }
+    }
+
+    @Test
+    void overlappingBatchesDoNotDeadlock() throws Exception {
+        long first = (1L << 2) | (1L << 17) | (1L << 27);
+        long second = (1L << 27) | (1L << 22) | (1L << 2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> a = executor.submit(() -> repeatLock(first));
+            Future<?> b = executor.submit(() -> repeatLock(second));
+            a.get(5, TimeUnit.SECONDS);
+            b.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void updateSwapsSnapshotAndIgnoresMissingPins() {
+        table.put(new GpioPin(17, "Relay", "OUTPUT", "test"));
+
+        GpioPin updated = table.update(17, pin -> pin.withState(true));
+
+        assertTrue(updated.isState());
+        assertTrue(table.get(17).isState());
+        assertNull(table.update(18, pin -> pin.withState(true)));
+        assertNull(table.get(-1));
+        assertNull(table.get(PinTable.SIZE));
+        assertEquals(List.of(table.get(17)), table.snapshot());
+        assertEquals(1, table.size());
+    }
+
+    private void repeatLock(long mask) {
+        for (int i = 0; i < 20_000; i++) {
+            table.lockAll(mask);
+            table.unlockAll(mask);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condizione non raggiunta entro 2s");
+            Thread.sleep(5);
+        }
+    }
+}
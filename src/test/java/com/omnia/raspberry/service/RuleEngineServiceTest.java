@@ -0,0 +1,132 @@
+package com.omnia.raspberry.service;
+
+import com.omnia.raspberry.model.AutomationRule;
+import com.omnia.raspberry.model.DeviceEvent;
+import com.omnia.raspberry.model.GpioPin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RuleEngineServiceTest {
+
+    private static final int PIR = 21;
+    private static final int RELAY_1 = 16;
+    private static final int RELAY_2 = 20;
+    private static final int BUZZER = 26;
+
+    private final DeviceEventBus eventBus = new DeviceEventBus(16, false);
+    private final List<String> actionThreads = new CopyOnWriteArrayList<>();
+    private final List<String> writes = new CopyOnWriteArrayList<>();
+    private RuleEngineService engine;
+
+    @BeforeEach
+    void setUp() {
+        GpioService gpioService = mock(GpioService.class);
+        when(gpioService.getGpioPin(PIR)).thenReturn(new GpioPin(PIR, "PIR", "INPUT", "test"));
+        for (int pin : new int[]{RELAY_1, RELAY_2, BUZZER}) {
+            when(gpioService.getGpioPin(pin)).thenReturn(new GpioPin(pin, "out" + pin, "OUTPUT", "test"));
+        }
+        doAnswer(invocation -> {
+            actionThreads.add(Thread.currentThread().getName());
+            writes.add(invocation.getArgument(0) + "=" + invocation.getArgument(1));
+            return true;
+        }).when(gpioService).setDigitalPin(anyInt(), anyBoolean());
+
+        engine = new RuleEngineService();
+        ReflectionTestUtils.setField(engine, "eventBus", eventBus);
+        ReflectionTestUtils.setField(engine, "gpioService", gpioService);
+        ReflectionTestUtils.setField(engine, "tickMillis", 10L);
+        ReflectionTestUtils.setField(engine, "wheelSize", 64);
+        engine.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.cleanup();
+        eventBus.cleanup();
+    }
+
+    @Test
+    void actionAndTimedRestoreRunOnTheActionThread() throws Exception {
+        AutomationRule rule = rule("edge", String.valueOf(PIR), RELAY_1);
+        rule.setDurationMs(50);
+        engine.addRule(rule);
+
+        eventBus.publish(DeviceEvent.edge(PIR, true));
+
+        await(() -> writes.size() == 2);
+        assertEquals(List.of("16=true", "16=false"), writes);
+        assertEquals(List.of("rules-actions", "rules-actions"), actionThreads);
+    }
+
+    @Test
+    void selfTriggeringRuleIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.addRule(rule("pin", String.valueOf(RELAY_1), RELAY_1)));
+        assertTrue(engine.getRules().isEmpty());
+    }
+
+    @Test
+    void ruleClosingACycleIsRejected() {
+        engine.addRule(rule("pin", String.valueOf(RELAY_1), RELAY_2));
+        engine.addRule(rule("pin", String.valueOf(RELAY_2), BUZZER));
+
+        // 26 → 16 chiuderebbe 16 → 20 → 26 → 16
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.addRule(rule("pin", String.valueOf(BUZZER), RELAY_1)));
+        assertEquals(2, engine.getRules().size());
+    }
+
+    @Test
+    void chainedPinRulesStillFire() throws Exception {
+        engine.addRule(rule("pin", String.valueOf(RELAY_1), RELAY_2));
+
+        eventBus.publish(DeviceEvent.pin(RELAY_1, true));
+
+        await(() -> writes.size() == 1);
+        assertEquals(List.of("20=true"), writes);
+    }
+
+    @Test
+    void triggerKeyIsValidatedOnCreation() {
+        // edge solo su pin di INPUT, pin solo su pin di output
+        assertThrows(IllegalArgumentException.class, () -> engine.addRule(rule("edge", String.valueOf(RELAY_2), RELAY_1)));
+        assertThrows(IllegalArgumentException.class, () -> engine.addRule(rule("pin", String.valueOf(PIR), RELAY_1)));
+        assertThrows(IllegalArgumentException.class, () -> engine.addRule(rule("edge", "99", RELAY_1)));
+        assertThrows(IllegalArgumentException.class, () -> engine.addRule(rule("edge", "pir", RELAY_1)));
+        assertThrows(IllegalArgumentException.class, () -> engine.addRule(rule("metric", "cpuTemp", RELAY_1)));
+
+        engine.addRule(rule("metric", "cpuTemperature", BUZZER));
+        assertEquals(1, engine.getRules().size());
+    }
+
+    private static AutomationRule rule(String triggerType, String triggerKey, int actionPin) {
+        AutomationRule rule = new AutomationRule();
+        rule.setTriggerType(triggerType);
+        rule.setTriggerKey(triggerKey);
+        rule.setActionPin(actionPin);
+        return rule;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condizione non raggiunta entro 2s");
+            Thread.sleep(5);
+        }
+    }
+}